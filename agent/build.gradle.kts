@@ -0,0 +1,54 @@
+import com.github.jengelman.gradle.plugins.shadow.tasks.ShadowJar
+
+plugins {
+	id("java")
+	id("java-library")
+	id("maven-publish")
+	id("com.github.johnrengelman.shadow")
+}
+
+dependencies {
+	implementation(project(":"))
+
+	testImplementation("junit:junit:4.13.2")
+
+	val lombok = "org.projectlombok:lombok:1.18.18"
+	compileOnly(lombok)
+	annotationProcessor(lombok)
+	testCompileOnly(lombok)
+	testAnnotationProcessor(lombok)
+}
+
+val agentManifest = mapOf(
+	"Premain-Class" to "dev.minco.mixin.agent.MixinAgent",
+	"Agent-Class" to "dev.minco.mixin.agent.MixinAgent",
+	"Can-Redefine-Classes" to "true",
+	"Can-Retransform-Classes" to "true"
+)
+
+tasks.jar {
+	manifest.attributes(agentManifest)
+}
+
+// the agent is loaded from a single jar with -javaagent, so bundle the library
+// its dependencies are relocated so they can't clash with versions used by the application being transformed
+tasks.named<ShadowJar>("shadowJar") {
+	archiveClassifier.set("")
+	manifest.attributes(agentManifest)
+	relocate("org.objectweb.asm", "dev.minco.mixin.agent.shadow.asm")
+	relocate("com.github.javaparser", "dev.minco.mixin.agent.shadow.javaparser")
+	mergeServiceFiles()
+	dependencies {
+		// only used at compile time
+		exclude(dependency("org.projectlombok:lombok"))
+	}
+}
+
+publishing {
+	publications {
+		create<MavenPublication>("maven") {
+			artifactId = "mixin-agent"
+			project.extensions.getByType<com.github.jengelman.gradle.plugins.shadow.ShadowExtension>().component(this)
+		}
+	}
+}
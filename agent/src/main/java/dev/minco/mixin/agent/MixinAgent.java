@@ -0,0 +1,66 @@
+package dev.minco.mixin.agent;
+
+import java.io.File;
+import java.lang.instrument.Instrumentation;
+import java.nio.file.Paths;
+import java.util.List;
+
+import lombok.NonNull;
+import lombok.val;
+
+import dev.minco.mixin.internal.MixinApplicator;
+import dev.minco.mixin.internal.MixinHotSwapper;
+
+/**
+ * Applies mixins to classes as they are loaded.
+ * <p>
+ * Usage: {@code -javaagent:mixin-agent.jar=<mixin source>[<path separator><mixin source>...]}, where each source is a jar or
+ * directory of mixin classes. Mixins are discovered when the agent starts, but target classes are only parsed when the JVM
+ * loads them.
+ * <p>
+ * Attaching the agent again with new sources, or calling {@link #swap(MixinApplicator)}, re-applies mixins to loaded targets
+ * with {@link MixinHotSwapper}. This only works if the new mixins change nothing but method bodies.
+ */
+public class MixinAgent {
+	private static MixinClassFileTransformer transformer;
+	private static MixinHotSwapper hotSwapper;
+
+	public static void premain(String args, Instrumentation instrumentation) {
+		agentmain(args, instrumentation);
+	}
+
+	public static synchronized void agentmain(String args, Instrumentation instrumentation) {
+		if (args == null || args.isEmpty())
+			throw new IllegalArgumentException("Expected mixin sources as agent arguments, separated by '" + File.pathSeparator + "'");
+
+		val applicator = new MixinApplicator();
+		for (String source : args.split(File.pathSeparator))
+			if (!source.isEmpty())
+				applicator.addSource(Paths.get(source));
+
+		if (transformer != null) {
+			val redefined = swap(applicator);
+			applicator.getLog().accept("Redefined " + redefined.size() + " classes with mixins from " + args);
+			return;
+		}
+
+		hotSwapper = instrumentation.isRedefineClassesSupported() ? new MixinHotSwapper(instrumentation) : null;
+		transformer = new MixinClassFileTransformer(applicator, hotSwapper);
+		instrumentation.addTransformer(transformer);
+	}
+
+	/**
+	 * Re-applies mixins from the given applicator to already loaded targets, and uses it for targets loaded from now on
+	 *
+	 * @return the classes which were redefined
+	 * @throws dev.minco.mixin.internal.MixinError if any loaded target would change more than its method bodies. Nothing is changed.
+	 */
+	public static synchronized List<Class<?>> swap(@NonNull MixinApplicator applicator) {
+		if (transformer == null)
+			throw new IllegalStateException("Mixin agent is not loaded");
+		if (hotSwapper == null)
+			throw new UnsupportedOperationException("Redefining classes is not supported by this JVM");
+
+		return transformer.swap(applicator);
+	}
+}
@@ -0,0 +1,153 @@
+package dev.minco.mixin.agent;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.instrument.ClassFileTransformer;
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.ProtectionDomain;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import lombok.NonNull;
+import lombok.val;
+
+import dev.minco.javatransformer.api.ClassPath;
+import dev.minco.mixin.internal.MixinApplicator;
+import dev.minco.mixin.internal.MixinHotSwapper;
+
+/**
+ * Transforms classes targeted by an applicator's {@link dev.minco.mixin.internal.ApplicationPlan} as they are loaded.
+ * <p>
+ * The plan is built once, when this transformer is created or its applicator is replaced. For any other class, {@link #transform}
+ * returns null after a single set lookup, without parsing the class. Failures are written to the applicator's log, as the JVM
+ * ignores exceptions thrown by a {@link ClassFileTransformer}. The {@link ClassPath} used to resolve classes referenced by a
+ * target is created once for each jar or directory targets are loaded from, and reused until the applicator is replaced.
+ * Redefinitions are not transformed, as the redefined bytes already come from a {@link MixinHotSwapper}.
+ * <p>
+ * No lock is taken. {@link #swap} publishes the new applicator before redefining loaded targets, and a class whose transform
+ * overlapped the change is transformed again with the new applicator. A class which was recorded but not yet defined when the
+ * swap looked for loaded classes is looked for again by the hot swapper.
+ */
+public class MixinClassFileTransformer implements ClassFileTransformer {
+	/**
+	 * Transforms of one class to attempt while swaps keep replacing the applicator
+	 */
+	private static final int MAX_ATTEMPTS = 3;
+	private final MixinHotSwapper hotSwapper;
+	private volatile State state;
+
+	public MixinClassFileTransformer(MixinApplicator applicator) {
+		this(applicator, null);
+	}
+
+	/**
+	 * @param hotSwapper records each transformed class, or null
+	 */
+	public MixinClassFileTransformer(MixinApplicator applicator, MixinHotSwapper hotSwapper) {
+		this.hotSwapper = hotSwapper;
+		setApplicator(applicator);
+	}
+
+	/**
+	 * Uses a new applicator for classes loaded from now on. Classes which are already loaded are not changed.
+	 */
+	public void setApplicator(@NonNull MixinApplicator applicator) {
+		state = createState(applicator);
+	}
+
+	private static State createState(MixinApplicator applicator) {
+		val targets = new HashSet<String>();
+		for (String target : applicator.getApplicationPlan().getTargets())
+			targets.add(target.replace('.', '/').replace('$', '/'));
+		return new State(applicator, targets);
+	}
+
+	/**
+	 * Uses the given applicator for classes loaded from now on, and re-applies its mixins to loaded targets
+	 *
+	 * @return the classes which were redefined
+	 * @throws dev.minco.mixin.internal.MixinError if any loaded target would change more than its method bodies. No class is
+	 * redefined and the previous applicator is used again, but classes loaded during the swap keep the new mixins.
+	 */
+	public synchronized List<Class<?>> swap(@NonNull MixinApplicator applicator) {
+		if (hotSwapper == null)
+			throw new UnsupportedOperationException("No hot swapper was given to this transformer");
+
+		// the plan is built before publishing, so loading classes never waits for discovery
+		val previous = state;
+		state = createState(applicator);
+		try {
+			return hotSwapper.swap(applicator);
+		} catch (RuntimeException e) {
+			state = previous;
+			throw e;
+		}
+	}
+
+	@Override
+	public byte[] transform(ClassLoader loader, String className, Class<?> classBeingRedefined, ProtectionDomain protectionDomain, byte[] classfileBuffer) {
+		// redefined bytes come from the hot swapper, which has already applied mixins
+		if (className == null || classBeingRedefined != null)
+			return null;
+
+		State state = this.state;
+		boolean recorded = false;
+		for (int attempt = 1; ; attempt++) {
+			byte[] transformed = transform(state, className, protectionDomain, classfileBuffer);
+			// once recorded, a class which the new applicator doesn't target is recorded with its original bytes
+			if (hotSwapper != null && (transformed != null || recorded)) {
+				hotSwapper.record(loader, className, classfileBuffer, transformed == null ? classfileBuffer : transformed, getSource(protectionDomain), state.applicator);
+				recorded = true;
+			}
+
+			val latest = this.state;
+			if (latest == state || attempt == MAX_ATTEMPTS)
+				return transformed;
+			state = latest;
+		}
+	}
+
+	private static byte[] transform(State state, String className, ProtectionDomain protectionDomain, byte[] classfileBuffer) {
+		if (!state.targets.contains(className.replace('$', '/')))
+			return null;
+
+		try {
+			val source = getSource(protectionDomain);
+			val classPath = source == null ? null : state.classPaths.computeIfAbsent(source, state.applicator::createClassPath);
+			return state.applicator.transformClass(className, classfileBuffer, classPath);
+		} catch (Throwable t) {
+			// exceptions thrown from a ClassFileTransformer are silently ignored by the JVM
+			val stackTrace = new StringWriter();
+			t.printStackTrace(new PrintWriter(stackTrace));
+			state.applicator.getLog().accept("Failed to apply mixins to " + className + '\n' + stackTrace);
+			return null;
+		}
+	}
+
+	private static Path getSource(ProtectionDomain protectionDomain) {
+		if (protectionDomain == null || protectionDomain.getCodeSource() == null || protectionDomain.getCodeSource().getLocation() == null)
+			return null;
+		try {
+			val source = Paths.get(protectionDomain.getCodeSource().getLocation().toURI());
+			return source.toFile().exists() ? source : null;
+		} catch (URISyntaxException | IllegalArgumentException e) {
+			return null;
+		}
+	}
+
+	private static final class State {
+		final MixinApplicator applicator;
+		final Set<String> targets;
+		final Map<Path, ClassPath> classPaths = new ConcurrentHashMap<>();
+
+		State(MixinApplicator applicator, Set<String> targets) {
+			this.applicator = applicator;
+			this.targets = targets;
+		}
+	}
+}
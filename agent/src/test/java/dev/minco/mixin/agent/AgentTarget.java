@@ -0,0 +1,7 @@
+package dev.minco.mixin.agent;
+
+public class AgentTarget {
+	public String value() {
+		return "original";
+	}
+}
@@ -0,0 +1,58 @@
+package dev.minco.mixin.agent;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import lombok.val;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import dev.minco.javatransformer.api.JavaTransformer;
+import dev.minco.mixin.agent.mixins.AgentTargetMixin;
+import dev.minco.mixin.internal.MixinApplicator;
+
+public class MixinClassFileTransformerTest {
+	private static String internalName(Class<?> clazz) {
+		return clazz.getName().replace('.', '/');
+	}
+
+	private static byte[] readClass(Class<?> clazz) throws IOException {
+		return Files.readAllBytes(JavaTransformer.pathFromClass(clazz).resolve(internalName(clazz) + ".class"));
+	}
+
+	private static MixinApplicator applicator() {
+		val applicator = new MixinApplicator();
+		applicator.addSource(AgentTargetMixin.class);
+		return applicator;
+	}
+
+	@Test
+	public void testTransformsOnlyTargets() throws Exception {
+		val transformer = new MixinClassFileTransformer(applicator());
+		val loader = getClass().getClassLoader();
+
+		val target = readClass(AgentTarget.class);
+		val transformed = transformer.transform(loader, internalName(AgentTarget.class), null, AgentTarget.class.getProtectionDomain(), target);
+		Assert.assertNotNull("target should be transformed", transformed);
+		Assert.assertFalse("target should be transformed", Arrays.equals(target, transformed));
+
+		val other = readClass(MixinClassFileTransformerTest.class);
+		Assert.assertNull(transformer.transform(loader, internalName(MixinClassFileTransformerTest.class), null, getClass().getProtectionDomain(), other));
+		// redefined bytes come from the hot swapper, which has already applied mixins
+		Assert.assertNull(transformer.transform(loader, internalName(AgentTarget.class), AgentTarget.class, AgentTarget.class.getProtectionDomain(), target));
+	}
+
+	@Test
+	public void testFailuresAreLoggedToTheApplicator() throws Exception {
+		val log = new ArrayList<String>();
+		val applicator = applicator();
+		applicator.setLog(log::add);
+		val transformer = new MixinClassFileTransformer(applicator);
+
+		Assert.assertNull(transformer.transform(getClass().getClassLoader(), internalName(AgentTarget.class), null, AgentTarget.class.getProtectionDomain(), new byte[]{1, 2, 3}));
+		Assert.assertTrue(log.toString(), log.stream().anyMatch(it -> it.startsWith("Failed to apply mixins to " + internalName(AgentTarget.class)) && it.contains("\tat ")));
+	}
+}
@@ -0,0 +1,13 @@
+package dev.minco.mixin.agent.mixins;
+
+import dev.minco.mixin.*;
+import dev.minco.mixin.agent.AgentTarget;
+
+@Mixin
+public abstract class AgentTargetMixin extends AgentTarget {
+	@Override
+	@Overwrite
+	public String value() {
+		return "mixin applied";
+	}
+}
@@ -0,0 +1,16 @@
+plugins {
+	id("java")
+	id("me.champeau.gradle.jmh") version "0.5.3"
+}
+
+dependencies {
+	jmh(project(":"))
+}
+
+jmh {
+	// gc.alloc.rate.norm is the bytes allocated per operation, a proxy for memory use rather than the peak heap
+	profilers = listOf("gc")
+	fork = 1
+	warmupIterations = 2
+	iterations = 5
+}
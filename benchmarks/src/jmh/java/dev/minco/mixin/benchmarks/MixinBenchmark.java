@@ -0,0 +1,84 @@
+package dev.minco.mixin.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import dev.minco.javatransformer.api.JavaTransformer;
+import dev.minco.mixin.internal.MixinApplicator;
+
+/**
+ * Measures building the mixin transformer and transforming a whole target jar, for compiled classes and for sources.
+ * <p>
+ * Run with {@code ./gradlew :benchmarks:jmh}. The corpus is sized by the number of target classes and the number of padding
+ * methods in each, and other sizes can be chosen when running the jmh jar directly, for example
+ * {@code -p classes=200000 -p paddingMethods=64}.
+ * <p>
+ * The gc profiler is enabled. Its {@code gc.alloc.rate.norm} is the total bytes allocated per operation, not the peak heap
+ * used, and is only a proxy for memory use: most of what a transform allocates is garbage soon after. To find the peak, run
+ * with a fixed {@code -Xmx} and lower it until the benchmark fails.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MixinBenchmark {
+	@Param({"1000", "10000", "50000"})
+	public int classes;
+
+	@Param({"8"})
+	public int paddingMethods;
+
+	@Param({"1"})
+	public int mixinPercent;
+
+	@Param({"BYTECODE", "SOURCE"})
+	public Kind kind;
+
+	private SyntheticCorpus corpus;
+	private MixinApplicator applicator;
+	private Path output;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		corpus = SyntheticCorpus.get(classes, paddingMethods, mixinPercent);
+		applicator = createApplicator();
+		applicator.getMixinTransformer();
+		output = Files.createTempDirectory("mixin-benchmark-output").resolve("output.jar");
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		SyntheticCorpus.deleteRecursively(output.getParent());
+	}
+
+	private MixinApplicator createApplicator() {
+		MixinApplicator applicator = new MixinApplicator();
+		applicator.setLog(it -> {});
+		if (kind == Kind.SOURCE) {
+			// injections into source are best effort, as in source patching builds
+			applicator.setFailOnInjectionError(false);
+			applicator.addSource(corpus.mixinSources);
+		} else {
+			applicator.addSource(corpus.mixinClasses);
+		}
+		return applicator;
+	}
+
+	@Benchmark
+	public JavaTransformer buildTransformer() {
+		return createApplicator().getMixinTransformer();
+	}
+
+	@Benchmark
+	public void transformJar() {
+		applicator.transform(kind == Kind.SOURCE ? corpus.targetSourceJar : corpus.targetJar, output);
+	}
+
+	public enum Kind {
+		BYTECODE,
+		SOURCE
+	}
+}
@@ -0,0 +1,176 @@
+package dev.minco.mixin.benchmarks;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import dev.minco.javatransformer.api.JavaTransformer;
+import dev.minco.mixin.Mixin;
+
+/**
+ * Generates a corpus of target classes and mixins for benchmarking.
+ * <p>
+ * Every target class has a few methods with calls, returns and field accesses for injections to match, and
+ * {@code paddingMethods} methods no mixin touches, which set the size of each class. One target in every
+ * {@code 100 / mixinPercent} has a mixin which overwrites one method and injects into another. Corpora are generated once for
+ * each combination of parameters and reused from {@code java.io.tmpdir}.
+ */
+final class SyntheticCorpus {
+	private static final String TARGET_PACKAGE = "bench.target";
+	private static final String MIXIN_PACKAGE = "bench.mixin";
+
+	final Path targetJar;
+	final Path targetSourceJar;
+	final Path mixinClasses;
+	final Path mixinSources;
+	final int mixins;
+
+	private SyntheticCorpus(Path root, int mixins) {
+		targetJar = root.resolve("target.jar");
+		targetSourceJar = root.resolve("target-sources.jar");
+		mixinClasses = root.resolve("mixin-classes");
+		mixinSources = root.resolve("mixin-sources");
+		this.mixins = mixins;
+	}
+
+	static SyntheticCorpus get(int classes, int paddingMethods, int mixinPercent) {
+		int step = Math.max(1, 100 / Math.max(1, mixinPercent));
+		int mixins = (classes + step - 1) / step;
+		Path root = Paths.get(System.getProperty("java.io.tmpdir"), "mixin-benchmark-corpus", classes + "-" + paddingMethods + "-" + step);
+		SyntheticCorpus corpus = new SyntheticCorpus(root, mixins);
+		if (Files.exists(root.resolve("complete")))
+			return corpus;
+
+		try {
+			deleteRecursively(root);
+			Path targetSources = root.resolve("target-sources");
+			Path targetClasses = root.resolve("target-classes");
+			for (int i = 0; i < classes; i++) {
+				write(targetSources, TARGET_PACKAGE, "Target" + i, target(i, paddingMethods));
+				if (i % step == 0)
+					write(corpus.mixinSources, MIXIN_PACKAGE, "Mixin" + i, mixin(i));
+			}
+
+			compile(targetSources, targetClasses, Collections.emptyList());
+			compile(corpus.mixinSources, corpus.mixinClasses, Arrays.asList(targetClasses, JavaTransformer.pathFromClass(Mixin.class)));
+			jar(targetClasses, corpus.targetJar);
+			jar(targetSources, corpus.targetSourceJar);
+			Files.createFile(root.resolve("complete"));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return corpus;
+	}
+
+	private static String target(int i, int paddingMethods) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("package ").append(TARGET_PACKAGE).append(";\n\n")
+			.append("public class Target").append(i).append(" {\n")
+			.append("\tprivate int counter;\n\n")
+			.append("\tpublic int compute(int x) {\n")
+			.append("\t\tint y = x * 31 + counter;\n")
+			.append("\t\tif (y > ").append(i).append(")\n")
+			.append("\t\t\treturn y - 1;\n")
+			.append("\t\treturn helper(y);\n")
+			.append("\t}\n\n")
+			.append("\tprivate int helper(int y) {\n")
+			.append("\t\tcounter++;\n")
+			.append("\t\treturn y + 1;\n")
+			.append("\t}\n\n")
+			.append("\tpublic String describe() {\n")
+			.append("\t\treturn \"Target").append(i).append(" \" + counter;\n")
+			.append("\t}\n");
+		for (int j = 0; j < paddingMethods; j++) {
+			sb.append("\n\tpublic int pad").append(j).append("(int a) {\n")
+				.append("\t\tfor (int k = 0; k < a; k++)\n")
+				.append("\t\t\tcounter += k ^ ").append(j).append(";\n")
+				.append("\t\treturn counter;\n")
+				.append("\t}\n");
+		}
+		return sb.append("}\n").toString();
+	}
+
+	private static String mixin(int i) {
+		return "package " + MIXIN_PACKAGE + ";\n\n" +
+			"import dev.minco.mixin.*;\n" +
+			"import " + TARGET_PACKAGE + ".Target" + i + ";\n\n" +
+			"@Mixin\n" +
+			"public abstract class Mixin" + i + " extends Target" + i + " {\n" +
+			"\t@Override\n" +
+			"\t@Overwrite\n" +
+			"\tpublic String describe() {\n" +
+			"\t\treturn \"patched\";\n" +
+			"\t}\n\n" +
+			"\t@Injectable\n" +
+			"\tpublic void beforeHelper() {\n" +
+			"\t\tSystem.nanoTime();\n" +
+			"\t}\n\n" +
+			"\t@Override\n" +
+			"\t@Inject(injectable = \"beforeHelper\", type = Type.METHOD_CALL, value = \"helper\")\n" +
+			"\tpublic abstract int compute(int x);\n" +
+			"}\n";
+	}
+
+	private static void write(Path root, String packageName, String className, String source) throws IOException {
+		Path file = root.resolve(packageName.replace('.', '/')).resolve(className + ".java");
+		Files.createDirectories(file.getParent());
+		Files.write(file, source.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static void compile(Path sources, Path output, List<Path> classPath) throws IOException {
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		if (compiler == null)
+			throw new IllegalStateException("Benchmarks must be run on a JDK to generate their corpus");
+
+		List<String> args = new ArrayList<>();
+		args.add("-d");
+		args.add(output.toString());
+		args.add("-nowarn");
+		if (!classPath.isEmpty()) {
+			args.add("-cp");
+			args.add(classPath.stream().map(Path::toString).collect(Collectors.joining(System.getProperty("path.separator"))));
+		}
+		try (Stream<Path> stream = Files.walk(sources)) {
+			stream.filter(it -> it.toString().endsWith(".java")).forEach(it -> args.add(it.toString()));
+		}
+		Files.createDirectories(output);
+		if (compiler.run(null, null, null, args.toArray(new String[0])) != 0)
+			throw new IllegalStateException("Failed to compile " + sources);
+	}
+
+	private static void jar(Path directory, Path jar) throws IOException {
+		List<Path> files;
+		try (Stream<Path> stream = Files.walk(directory)) {
+			files = stream.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+		}
+		try (ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(jar))) {
+			for (Path file : files) {
+				zos.putNextEntry(new ZipEntry(directory.relativize(file).toString().replace('\\', '/')));
+				Files.copy(file, zos);
+				zos.closeEntry();
+			}
+		}
+	}
+
+	static void deleteRecursively(Path path) throws IOException {
+		if (!Files.exists(path))
+			return;
+		try (Stream<Path> stream = Files.walk(path)) {
+			for (Path file : stream.sorted(Comparator.reverseOrder()).collect(Collectors.toList()))
+				Files.delete(file);
+		}
+	}
+}
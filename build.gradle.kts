@@ -70,6 +70,8 @@ dependencies {
 	testImplementation("junit:junit:4.13.2")
 	implementation("me.nallar.whocalled:WhoCalled:1.1")
 	api("dev.minco:java-transformer:1.10.1")
+	// provided at runtime by java-transformer, used directly by LazyMethodBodies
+	compileOnly("org.ow2.asm:asm-tree:9.1")
 
 	val lombok = "org.projectlombok:lombok:1.18.18"
 	implementation(lombok)
@@ -0,0 +1,11 @@
+package dev.minco.gradle.mixin;
+
+import dev.minco.mixin.internal.FrozenMixinApplicator;
+
+/**
+ * Source of applicators shared between transforms. Kept separate from {@link MixinApplicatorService} so that types used on older
+ * gradle versions don't reference build services.
+ */
+public interface ApplicatorCache {
+	FrozenMixinApplicator getApplicator(ApplyMixins applyMixins);
+}
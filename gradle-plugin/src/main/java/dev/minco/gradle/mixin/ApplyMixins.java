@@ -10,10 +10,12 @@ import org.gradle.api.provider.Property;
 import org.gradle.api.tasks.Classpath;
 import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import dev.minco.mixin.internal.ApplicationType;
+import dev.minco.mixin.internal.FrozenMixinApplicator;
 import dev.minco.mixin.internal.MixinApplicator;
 
 public abstract class ApplyMixins {
@@ -28,16 +30,26 @@ public abstract class ApplyMixins {
 	@NonNull
 	public abstract ConfigurableFileCollection getMixinSource();
 
-	/*
-	removed this cache in case it's causing trouble
-	@Internal
-	private transient MixinApplicator applicator;
+	/**
+	 * Hash of the mixin library, so outputs are invalidated when it changes. Together with {@link #getMixinSource()} and
+	 * {@link #getApplicationType()} this forms the cache key of transformed artifacts.
 	 */
+	@Input
+	public String getLibraryFingerprint() {
+		return MixinApplicator.getLibraryFingerprint();
+	}
+
+	/**
+	 * Directory used to cache mixin discovery and transformed classes between builds. Not used if unset.
+	 */
+	@Internal
+	@NonNull
+	public abstract Property<File> getCacheDirectory();
 
+	/**
+	 * Builds a new applicator. Applicators are shared across a build by {@link MixinApplicatorService}, see {@link #getApplicator(ApplicatorCache)}.
+	 */
 	public MixinApplicator makeApplicator() {
-		/*if (applicator != null) {
-			return applicator;
-		}*/
 		val applicator = new MixinApplicator();
 		applicator.setNoMixinIsError(true);
 		applicator.setNotAppliedIsError(true);
@@ -48,13 +60,26 @@ public abstract class ApplyMixins {
 			applicator.addSource(file.toPath());
 		}
 		applicator.setApplicationType(getApplicationType().get());
-		//this.applicator = applicator;
+		if (getCacheDirectory().isPresent()) {
+			applicator.setCacheDirectory(getCacheDirectory().get().toPath());
+		}
 		return applicator;
 	}
 
+	/**
+	 * @param cache shared applicators, or null to build a new applicator
+	 */
+	public FrozenMixinApplicator getApplicator(ApplicatorCache cache) {
+		return cache == null ? makeApplicator().freeze() : cache.getApplicator(this);
+	}
+
 	public void transformArtifact(File input, File output) {
+		transformArtifact(input, output, null);
+	}
+
+	public void transformArtifact(File input, File output, ApplicatorCache cache) {
 		logger.info("Transforming " + input + " to " + output);
-		makeApplicator().getMixinTransformer().transform(input.toPath(), output.toPath());
+		getApplicator(cache).transform(input.toPath(), output.toPath());
 	}
 
 }
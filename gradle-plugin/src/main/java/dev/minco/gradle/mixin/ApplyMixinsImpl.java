@@ -1,5 +1,7 @@
 package dev.minco.gradle.mixin;
 
+import java.io.File;
+
 import javax.inject.Inject;
 
 import lombok.NonNull;
@@ -10,6 +12,7 @@ import org.gradle.api.provider.Property;
 import org.gradle.api.tasks.Classpath;
 import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
 
 import dev.minco.mixin.internal.ApplicationType;
 
@@ -24,10 +27,14 @@ public class ApplyMixinsImpl extends ApplyMixins {
 	@Classpath
 	private final ConfigurableFileCollection mixinSource;
 
+	@Internal
+	private final Property<File> cacheDirectory;
+
 	@Inject
 	public ApplyMixinsImpl(ObjectFactory objectFactory, ConfigurableFileCollection mixinSource) {
 		applicationType = objectFactory.property(ApplicationType.class);
 		this.mixinSource = mixinSource;
+		cacheDirectory = objectFactory.property(File.class);
 	}
 
 	@NonNull
@@ -42,4 +49,10 @@ public class ApplyMixinsImpl extends ApplyMixins {
 	public ConfigurableFileCollection getMixinSource() {
 		return this.mixinSource;
 	}
+
+	@NonNull
+	@Internal
+	public Property<File> getCacheDirectory() {
+		return this.cacheDirectory;
+	}
 }
@@ -1,7 +1,9 @@
 package dev.minco.gradle.mixin;
 
 import java.io.File;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import lombok.AllArgsConstructor;
@@ -15,6 +17,7 @@ import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
 import org.gradle.api.artifacts.dsl.DependencyHandler;
 import org.gradle.api.artifacts.query.ArtifactResolutionQuery;
 import org.gradle.api.artifacts.result.ResolvedArtifactResult;
+import org.gradle.api.file.FileCollection;
 import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.Nested;
 import org.gradle.api.tasks.OutputDirectory;
@@ -44,6 +47,15 @@ public class ApplyMixinsRepo {
 		return this.repo;
 	}
 
+	/**
+	 * The target artifacts. Declared as an input by {@link ApplyMixinsTask#getTargetArtifacts()}.
+	 */
+	@Internal
+	@NonNull
+	public FileCollection getTargetArtifacts() {
+		return mixinConfiguration;
+	}
+
 	@Internal
 	@NonNull
 	public final Map<Dependency, File> getOutputDependencyFiles() {
@@ -67,25 +79,56 @@ public class ApplyMixinsRepo {
 		throw new IllegalStateException("Unexpected value: " + type);
 	}
 
-	@SuppressWarnings("unchecked")
 	public void remapMixinArtifacts(@NonNull DependencyHandler dependencyHandler) {
-		val applicator = applyMixins.makeApplicator();
+		remapMixinArtifacts(dependencyHandler, null);
+	}
+
+	/**
+	 * Transforms every artifact then rewrites every POM, one at a time. {@link ApplyMixinsTask} uses worker actions instead on gradle 6.1 or newer.
+	 *
+	 * @param cache shared applicators, or null to build a new applicator
+	 */
+	public void remapMixinArtifacts(@NonNull DependencyHandler dependencyHandler, ApplicatorCache cache) {
+		val applicator = applyMixins.getApplicator(cache);
+		resolveArtifacts().forEach((input, output) -> {
+			output.getParentFile().mkdirs();
+			applicator.transform(input.toPath(), output.toPath());
+		});
+		rewritePoms(dependencyHandler, null);
+	}
+
+	/**
+	 * Resolves the target configuration
+	 *
+	 * @return the output jar for each resolved target artifact, in resolution order
+	 */
+	@NonNull
+	public Map<File, File> resolveArtifacts() {
 		val config = mixinConfiguration;
 		config.resolve();
 		val resolved = config.getResolvedConfiguration();
 		val stage = getStage();
 		resolved.rethrowFailure();
 
+		val result = new LinkedHashMap<File, File>();
 		for (val artifact : resolved.getResolvedArtifacts()) {
 			val id = artifact.getId().getComponentIdentifier();
 			if (id instanceof ModuleComponentIdentifier) {
 				val mcid = (ModuleComponentIdentifier) id;
-				val output = new File(repo, getMavenPath(mcid.getGroup(), mcid.getModule(), mcid.getVersion() + '-' + stage) + ".jar");
-				output.getParentFile().mkdirs();
-				applicator.getMixinTransformer().transform(artifact.getFile().toPath(), output.toPath());
+				result.put(artifact.getFile(), new File(repo, getMavenPath(mcid.getGroup(), mcid.getModule(), mcid.getVersion() + '-' + stage) + ".jar"));
 			}
 		}
+		return result;
+	}
 
+	/**
+	 * Copies the POM of each target into the repo, with the version changed to include the stage
+	 *
+	 * @param outputs only rewrite the POMs of these output jars, or null to rewrite all of them
+	 */
+	@SuppressWarnings("unchecked")
+	public void rewritePoms(@NonNull DependencyHandler dependencyHandler, Collection<File> outputs) {
+		val stage = getStage();
 		ArtifactResolutionQuery query = artifactResolution(dependencyHandler, mixinConfiguration.getDependencies());
 		query = query.withArtifacts(MavenModule.class, MavenPomArtifact.class);
 		val result = query.execute();
@@ -93,6 +136,8 @@ public class ApplyMixinsRepo {
 			val id = resolvedComponent.getId();
 			if (id instanceof ModuleComponentIdentifier) {
 				val mcid = (ModuleComponentIdentifier) id;
+				if (outputs != null && !outputs.contains(new File(repo, getMavenPath(mcid.getGroup(), mcid.getModule(), mcid.getVersion() + '-' + stage) + ".jar")))
+					continue;
 				for (val artifact : resolvedComponent.getArtifacts(MavenPomArtifact.class)) {
 					if (artifact instanceof ResolvedArtifactResult) {
 						Utils.setPomRootVal(((ResolvedArtifactResult) artifact).getFile(), new File(repo, getMavenPath(mcid.getGroup(), mcid.getModule(), mcid.getVersion() + '-' + stage) + ".pom"), "version", ((ModuleComponentIdentifier) id).getVersion() + '-' + stage);
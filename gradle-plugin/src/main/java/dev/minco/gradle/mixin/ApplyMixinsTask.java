@@ -1,40 +1,121 @@
 package dev.minco.gradle.mixin;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import javax.inject.Inject;
 
+import lombok.val;
+
 import dev.minco.gradle.mixin.deps.GeneratedDependency;
 import org.gradle.api.DefaultTask;
 import org.gradle.api.Project;
 import org.gradle.api.Task;
 import org.gradle.api.artifacts.Dependency;
+import org.gradle.api.file.FileCollection;
 import org.gradle.api.model.ObjectFactory;
 import org.gradle.api.provider.Property;
 import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Classpath;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.Nested;
 import org.gradle.api.tasks.TaskAction;
+import org.gradle.workers.WorkerExecutor;
 
 import dev.minco.gradle.mixin.deps.MModuleComponentIdentifier;
+import dev.minco.gradle.mixin.worker.ApplyMixinsWorkAction;
 
 @CacheableTask
 public class ApplyMixinsTask extends DefaultTask {
 	private final Property<ApplyMixinsRepo> applyMixinsRepo;
+	private final Property<ApplicatorCache> applicatorCache;
+	private final Property<WorkerIsolation> workerIsolation;
+	private final Property<String> workerMaxHeapSize;
+	private final Property<Integer> maxParallelism;
+	private final WorkerExecutor workerExecutor;
 
 	@Nested
 	public Property<ApplyMixinsRepo> getApplyMixinsRepo() {
 		return applyMixinsRepo;
 	}
 
+	@Classpath
+	@InputFiles
+	public FileCollection getTargetArtifacts() {
+		return applyMixinsRepo.get().getTargetArtifacts();
+	}
+
+	/**
+	 * Applicators shared with other tasks and transforms in the build. If unset, each run builds its own applicator.
+	 */
+	@Internal
+	public Property<ApplicatorCache> getApplicatorCache() {
+		return applicatorCache;
+	}
+
+	/**
+	 * Where artifacts are transformed. Defaults to {@link WorkerIsolation#NONE}. Ignored before gradle 6.1, where artifacts are
+	 * transformed one at a time in the task action.
+	 */
+	@Internal
+	public Property<WorkerIsolation> getWorkerIsolation() {
+		return workerIsolation;
+	}
+
+	/**
+	 * Heap size of each worker process, eg "2g", with {@link WorkerIsolation#PROCESS}. Uses gradle's default if unset.
+	 */
+	@Internal
+	public Property<String> getWorkerMaxHeapSize() {
+		return workerMaxHeapSize;
+	}
+
+	/**
+	 * Maximum number of artifacts this task transforms at once. If unset or 0, only gradle's --max-workers applies.
+	 */
+	@Internal
+	public Property<Integer> getMaxParallelism() {
+		return maxParallelism;
+	}
+
 	@Inject
-	public ApplyMixinsTask(ObjectFactory factory) {
+	public ApplyMixinsTask(ObjectFactory factory, WorkerExecutor workerExecutor) {
 		applyMixinsRepo = factory.property(ApplyMixinsRepo.class);
+		applicatorCache = factory.property(ApplicatorCache.class);
+		workerIsolation = factory.property(WorkerIsolation.class);
+		workerMaxHeapSize = factory.property(String.class);
+		maxParallelism = factory.property(Integer.class);
+		this.workerExecutor = workerExecutor;
 	}
 
 	@TaskAction
 	public void run() {
-		applyMixinsRepo.get().remapMixinArtifacts(getProject().getDependencies());
+		val repo = applyMixinsRepo.get();
+		// worker parameters reference the applicator service, so older gradle transforms in the task action
+		if (!MixinGradlePlugin.Settings.supportsBuildServices()) {
+			repo.remapMixinArtifacts(getProject().getDependencies(), applicatorCache.getOrNull());
+			return;
+		}
+
+		transformArtifacts(repo, repo.resolveArtifacts(), false);
+	}
+
+	/**
+	 * Transforms artifacts with worker actions and rewrites their POMs. Requires gradle 6.1 or newer.
+	 *
+	 * @param artifacts output jar for each input artifact
+	 * @param onlyGivenPoms whether to rewrite only the POMs of the given artifacts, rather than all of them
+	 */
+	void transformArtifacts(ApplyMixinsRepo repo, Map<File, File> artifacts, boolean onlyGivenPoms) {
+		val cache = applicatorCache.getOrNull();
+		val queue = ApplyMixinsWorkAction.submit(workerExecutor, repo.getApplyMixins(), artifacts, workerIsolation.getOrElse(WorkerIsolation.NONE),
+			workerMaxHeapSize.getOrNull(), maxParallelism.getOrElse(0), cache instanceof MixinApplicatorService ? (MixinApplicatorService) cache : null);
+		// POMs are small, rewrite them while the workers run
+		repo.rewritePoms(getProject().getDependencies(), onlyGivenPoms ? artifacts.values() : null);
+		queue.await();
 	}
 
 	public List<Dependency> getGeneratedDependenciesForOutputs(Project project, Task task) {
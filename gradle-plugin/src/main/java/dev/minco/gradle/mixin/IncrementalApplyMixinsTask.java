@@ -0,0 +1,99 @@
+package dev.minco.gradle.mixin;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import javax.inject.Inject;
+
+import lombok.val;
+
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.workers.WorkerExecutor;
+
+/**
+ * {@link ApplyMixinsTask} which only transforms the target artifacts affected by a change. Used on gradle 6.1 or newer.
+ * <p>
+ * An artifact is transformed again if its output is missing, if its size or modification time changed, or if
+ * {@link dev.minco.mixin.internal.FrozenMixinApplicator#getInputFingerprint(java.nio.file.Path)} differs from the last run, so
+ * changing one mixin only redoes the artifacts containing its targets. Fingerprints are kept in {@link #STATE_FILE} in the repo,
+ * so they are cached along with the outputs. Outputs of artifacts which are no longer targeted are deleted. If there is no state
+ * file, every artifact is transformed again and nothing is deleted, as it can't be known which outputs are stale.
+ * <p>
+ * This does not use gradle's {@code InputChanges}. Mixin sources can't be an incremental input, so a change to one would make
+ * the run non-incremental, and gradle deletes the outputs of an incremental task before a non-incremental run.
+ */
+@CacheableTask
+public class IncrementalApplyMixinsTask extends ApplyMixinsTask {
+	static final String STATE_FILE = "mixin-fingerprints";
+
+	@Inject
+	public IncrementalApplyMixinsTask(ObjectFactory factory, WorkerExecutor workerExecutor) {
+		super(factory, workerExecutor);
+	}
+
+	@Override
+	@TaskAction
+	public void run() {
+		val repo = getApplyMixinsRepo().get();
+		val repoDir = repo.getRepo();
+		val stateFile = new File(repoDir, STATE_FILE);
+		val previous = stateFile.exists() ? readState(stateFile) : new HashMap<String, String>();
+		val applicator = repo.getApplyMixins().getApplicator(getApplicatorCache().getOrNull());
+		val state = new TreeMap<String, String>();
+		val outdated = new LinkedHashMap<File, File>();
+		repo.resolveArtifacts().forEach((input, output) -> {
+			val key = repoDir.toPath().relativize(output.toPath()).toString().replace('\\', '/');
+			val fingerprint = applicator.getInputFingerprint(input.toPath()) + '-' + Long.toHexString(input.length()) + '-' + Long.toHexString(input.lastModified());
+			state.put(key, fingerprint);
+			if (!fingerprint.equals(previous.get(key)) || !output.exists())
+				outdated.put(input, output);
+		});
+
+		for (String key : previous.keySet()) {
+			if (state.containsKey(key))
+				continue;
+			val jar = new File(repoDir, key);
+			getLogger().info("Removing output of artifact which is no longer targeted: {}", jar);
+			getProject().delete(jar, new File(jar.getParentFile(), jar.getName().replaceAll("\\.jar$", ".pom")));
+		}
+
+		getLogger().info("Transforming {} of {} target artifacts", outdated.size(), state.size());
+		if (!outdated.isEmpty())
+			transformArtifacts(repo, outdated, true);
+		writeState(stateFile, state);
+	}
+
+	private static Map<String, String> readState(File file) {
+		val state = new HashMap<String, String>();
+		try {
+			for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+				val space = line.indexOf(' ');
+				if (space > 0)
+					state.put(line.substring(space + 1), line.substring(0, space));
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return state;
+	}
+
+	private static void writeState(File file, TreeMap<String, String> state) {
+		val lines = state.entrySet().stream().map(it -> it.getValue() + ' ' + it.getKey()).collect(Collectors.toList());
+		try {
+			file.getParentFile().mkdirs();
+			Files.write(file.toPath(), lines, StandardCharsets.UTF_8);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
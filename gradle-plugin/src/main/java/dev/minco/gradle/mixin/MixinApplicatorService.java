@@ -0,0 +1,87 @@
+package dev.minco.gradle.mixin;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import lombok.val;
+
+import org.gradle.api.Project;
+import org.gradle.api.Task;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+import dev.minco.mixin.internal.FrozenMixinApplicator;
+
+/**
+ * Holds built applicators for the duration of a build, so mixin sources are discovered once rather than once per transformed artifact.
+ * <p>
+ * Applicators are keyed by the {@link ApplyMixins} settings and the path, size and modification time of every file in the mixin
+ * source, so a rebuilt mixin jar gets a new applicator. Gradle closes the service when the build finishes, which evicts them all.
+ * Requires gradle 6.1 or newer.
+ */
+public abstract class MixinApplicatorService implements BuildService<BuildServiceParameters.None>, ApplicatorCache, AutoCloseable {
+	private final Map<String, FrozenMixinApplicator> applicators = new ConcurrentHashMap<>();
+
+	static Provider<MixinApplicatorService> register(Project project) {
+		return project.getGradle().getSharedServices().registerIfAbsent("mincoMixinApplicators", MixinApplicatorService.class, it -> {});
+	}
+
+	static void usedBy(Task task, Provider<MixinApplicatorService> service) {
+		task.usesService(service);
+	}
+
+	@Override
+	public FrozenMixinApplicator getApplicator(ApplyMixins applyMixins) {
+		return applicators.computeIfAbsent(key(applyMixins), k -> applyMixins.makeApplicator().freeze());
+	}
+
+	@Override
+	public void close() {
+		applicators.clear();
+	}
+
+	private static String key(ApplyMixins applyMixins) {
+		val key = new StringBuilder(applyMixins.getApplicationType().get().name());
+		if (applyMixins.getCacheDirectory().isPresent())
+			key.append('\n').append(applyMixins.getCacheDirectory().get());
+
+		List<File> sources = applyMixins.getMixinSource().getFiles().stream().sorted().collect(Collectors.toList());
+		try {
+			for (File source : sources) {
+				key.append('\n').append(source);
+				if (!source.isDirectory()) {
+					key.append(' ').append(source.length()).append(' ').append(source.lastModified());
+					continue;
+				}
+				try (Stream<Path> stream = Files.walk(source.toPath())) {
+					for (Path file : stream.filter(Files::isRegularFile).sorted().collect(Collectors.toList()))
+						key.append("\n\t").append(file).append(' ').append(Files.size(file)).append(' ').append(Files.getLastModifiedTime(file).toMillis());
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		try {
+			val digest = MessageDigest.getInstance("SHA-256").digest(key.toString().getBytes(StandardCharsets.UTF_8));
+			val hex = new StringBuilder(digest.length * 2);
+			for (byte b : digest)
+				hex.append(String.format("%02x", b));
+			return hex.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -1,7 +1,6 @@
 package dev.minco.gradle.mixin;
 
 import java.io.File;
-import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -17,8 +16,10 @@ import org.gradle.api.artifacts.Dependency;
 import org.gradle.api.artifacts.transform.TransformAction;
 import org.gradle.api.artifacts.type.ArtifactTypeDefinition;
 import org.gradle.api.attributes.Attribute;
+import org.gradle.api.attributes.AttributeContainer;
 import org.gradle.api.plugins.JavaPlugin;
 import org.gradle.api.plugins.JavaPluginConvention;
+import org.gradle.api.provider.Provider;
 import org.gradle.util.GradleVersion;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -26,6 +27,7 @@ import org.slf4j.LoggerFactory;
 import dev.minco.mixin.internal.ApplicationType;
 import dev.minco.gradle.mixin.deps.DependencyDebugTask;
 import dev.minco.gradle.mixin.transform.MixinTransform;
+import dev.minco.gradle.mixin.transform.SharedMixinTransform;
 
 @SuppressWarnings("unused")
 public class MixinGradlePlugin implements Plugin<Project> {
@@ -46,19 +48,32 @@ public class MixinGradlePlugin implements Plugin<Project> {
 		project.afterEvaluate(this::afterEvaluate);
 	}
 
-	private void registerTransform(Project project, String type, Map<String, ApplyMixins> applyMixinsMap) {
-		project.getDependencies().registerTransform(MixinTransform.class, it -> {
-			it.getFrom().attribute(artifactType, type).attribute(mixined, false);
-			it.getTo().attribute(artifactType, type).attribute(mixined, true);
-
-			it.parameters(params -> {
-				params.getPerDependencyApplyMixins().putAll(applyMixinsMap);
-				params.setArtifactType(type);
-				params.setCacheBust(LocalDate.now().toString());
+	private void registerTransform(Project project, String type, Map<String, ApplyMixins> applyMixinsMap, Provider<MixinApplicatorService> applicatorService) {
+		if (applicatorService == null) {
+			project.getDependencies().registerTransform(MixinTransform.Isolated.class, it -> {
+				configureTransform(it.getFrom(), it.getTo(), type);
+				configureParameters(it.getParameters(), applyMixinsMap, type);
 			});
+			return;
+		}
+
+		project.getDependencies().registerTransform(SharedMixinTransform.class, it -> {
+			configureTransform(it.getFrom(), it.getTo(), type);
+			configureParameters(it.getParameters(), applyMixinsMap, type);
+			it.getParameters().getApplicatorService().set(applicatorService);
 		});
 	}
 
+	private static void configureTransform(AttributeContainer from, AttributeContainer to, String type) {
+		from.attribute(artifactType, type).attribute(mixined, false);
+		to.attribute(artifactType, type).attribute(mixined, true);
+	}
+
+	private static void configureParameters(MixinTransform.Parameters params, Map<String, ApplyMixins> applyMixinsMap, String type) {
+		params.getPerDependencyApplyMixins().putAll(applyMixinsMap);
+		params.setArtifactType(type);
+	}
+
 	private void afterEvaluate(Project project) {
 		if (project.getState().getFailure() != null) {
 			return;
@@ -73,7 +88,13 @@ public class MixinGradlePlugin implements Plugin<Project> {
 
 		val applyMixinsMap = new HashMap<String, ApplyMixins>();
 
+		// only touch build service types on gradle versions which have them
+		Provider<MixinApplicatorService> applicatorService = Settings.supportsBuildServices() ? MixinApplicatorService.register(project) : null;
+
 		val mixinsTask = project.getTasks().getByName("applySubprojectMixins");
+		// incremental tasks transform with worker actions, which need the build service
+		Class<? extends ApplyMixinsTask> taskType = Settings.supportsBuildServices() ? IncrementalApplyMixinsTask.class : ApplyMixinsTask.class;
+		val cacheDirectory = new File(project.getGradle().getGradleUserHomeDir(), "caches/minco-mixin");
 		val allMixedinCfg = project.getConfigurations().create("mixedin");
 
 		project.getConfigurations().getByName("implementation").extendsFrom(allMixedinCfg);
@@ -97,17 +118,25 @@ public class MixinGradlePlugin implements Plugin<Project> {
 			ApplyMixins preApplyMixins = useTransforms ? project.getObjects().newInstance(ApplyMixins.class) : new ApplyMixinsImpl(project.getObjects(), project.files());
 			preApplyMixins.getMixinSource().from(sourceSet.getAllJava().getSourceDirectories());
 			preApplyMixins.getApplicationType().set(ApplicationType.PRE_PATCH);
+			preApplyMixins.getCacheDirectory().set(cacheDirectory);
 			val preApplyMixinsRepo = new ApplyMixinsRepo(preApplyMixins, new File(mixinProject.getBuildDir(), "mixin-pre"), mixinTargetsCfg);
 
-			val preApplyMixinTask = mixinProject.getTasks().create("preApplyMixins", ApplyMixinsTask.class, it -> it.getApplyMixinsRepo().set(preApplyMixinsRepo));
+			ApplyMixinsTask preApplyMixinTask = mixinProject.getTasks().create("preApplyMixins", taskType, it -> {
+				it.getApplyMixinsRepo().set(preApplyMixinsRepo);
+				configureTask(it, applicatorService);
+			});
 			mixinPrePatchedCfg.getDependencies().addAll(preApplyMixinTask.getGeneratedDependenciesForOutputs(mixinProject, preApplyMixinTask));
 			mixinProject.getConfigurations().getByName("implementation").extendsFrom(mixinPrePatchedCfg);
 
 			ApplyMixins applyMixins = useTransforms ? project.getObjects().newInstance(ApplyMixins.class) : new ApplyMixinsImpl(project.getObjects(), project.files());
 			applyMixins.getMixinSource().from(mixinProject.getTasks().getByName("jar").getOutputs().getFiles());
 			applyMixins.getApplicationType().set(ApplicationType.FINAL_PATCH);
+			applyMixins.getCacheDirectory().set(cacheDirectory);
 			val applyMixinsRepo = new ApplyMixinsRepo(applyMixins, new File(mixinProject.getBuildDir(), "mixin"), mixinTargetsCfg);
-			val mixinTask = mixinProject.getTasks().create("applyMixins", ApplyMixinsTask.class, it -> it.getApplyMixinsRepo().set(applyMixinsRepo));
+			ApplyMixinsTask mixinTask = mixinProject.getTasks().create("applyMixins", taskType, it -> {
+				it.getApplyMixinsRepo().set(applyMixinsRepo);
+				configureTask(it, applicatorService);
+			});
 			// gradle <= 4.10.2 doesn't set this automatically from the file dependency
 			mixinTask.dependsOn("jar");
 			mixinsTask.dependsOn(mixinTask);
@@ -131,13 +160,24 @@ public class MixinGradlePlugin implements Plugin<Project> {
 		});
 
 		if (useTransforms) {
-			registerTransform(project, ArtifactTypeDefinition.JAR_TYPE, applyMixinsMap);
-			registerTransform(project, ArtifactTypeDefinition.JVM_CLASS_DIRECTORY, applyMixinsMap);
+			registerTransform(project, ArtifactTypeDefinition.JAR_TYPE, applyMixinsMap, applicatorService);
+			registerTransform(project, ArtifactTypeDefinition.JVM_CLASS_DIRECTORY, applyMixinsMap, applicatorService);
 			// TODO: this is intended to be for source jars but doesn't work?
-			registerTransform(project, "java", applyMixinsMap);
+			registerTransform(project, "java", applyMixinsMap, applicatorService);
 		}
 	}
 
+	private void configureTask(ApplyMixinsTask task, Provider<MixinApplicatorService> applicatorService) {
+		task.getWorkerIsolation().set(settings.workerIsolation);
+		if (settings.workerMaxHeapSize != null)
+			task.getWorkerMaxHeapSize().set(settings.workerMaxHeapSize);
+		task.getMaxParallelism().set(settings.maxParallelism);
+		if (applicatorService == null)
+			return;
+		task.getApplicatorCache().set(applicatorService);
+		MixinApplicatorService.usedBy(task, applicatorService);
+	}
+
 	@Getter
 	public static class Settings {
 		@Getter
@@ -146,6 +186,24 @@ public class MixinGradlePlugin implements Plugin<Project> {
 		@Setter
 		boolean useArtifactTransforms = true;
 
+		/**
+		 * Where applyMixins tasks transform artifacts on gradle 6.1 or newer
+		 */
+		@Setter
+		WorkerIsolation workerIsolation = WorkerIsolation.NONE;
+
+		/**
+		 * Heap size of each worker process with {@link WorkerIsolation#PROCESS}, eg "2g". Uses gradle's default if null.
+		 */
+		@Setter
+		String workerMaxHeapSize;
+
+		/**
+		 * Maximum number of artifacts one applyMixins task transforms at once. 0 for no limit other than gradle's --max-workers.
+		 */
+		@Setter
+		int maxParallelism;
+
 		public void target(String subproject, List<Dependency> deps) {
 			targets.put(subproject, deps);
 		}
@@ -159,8 +217,12 @@ public class MixinGradlePlugin implements Plugin<Project> {
 			} catch (NoClassDefFoundError ignored) {
 				return false;
 			}
-			// Need at least 5.6 for @Nested
+			// Need at least 5.6 for @Nested. Before 6.1, each transform builds its own applicator as there are no build services
 			return GradleVersion.current().compareTo(GradleVersion.version("5.6")) >= 0;
 		}
+
+		static boolean supportsBuildServices() {
+			return GradleVersion.current().compareTo(GradleVersion.version("6.1")) >= 0;
+		}
 	}
 }
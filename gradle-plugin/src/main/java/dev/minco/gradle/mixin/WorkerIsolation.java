@@ -0,0 +1,15 @@
+package dev.minco.gradle.mixin;
+
+/**
+ * Where {@link ApplyMixinsTask} transforms artifacts on gradle 6.1 or newer
+ */
+public enum WorkerIsolation {
+	/**
+	 * In the gradle daemon, sharing applicators with the rest of the build
+	 */
+	NONE,
+	/**
+	 * In separate worker processes, each with its own heap. Each process builds its own applicator.
+	 */
+	PROCESS
+}
@@ -2,10 +2,12 @@ package dev.minco.gradle.mixin.transform;
 
 import java.io.File;
 
+import dev.minco.gradle.mixin.ApplicatorCache;
 import dev.minco.gradle.mixin.ApplyMixins;
 import lombok.NonNull;
 import lombok.val;
 
+import org.gradle.api.artifacts.transform.CacheableTransform;
 import org.gradle.api.artifacts.transform.InputArtifact;
 import org.gradle.api.artifacts.transform.TransformAction;
 import org.gradle.api.artifacts.transform.TransformOutputs;
@@ -15,12 +17,24 @@ import org.gradle.api.provider.MapProperty;
 import org.gradle.api.provider.Provider;
 import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.Nested;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public abstract class MixinTransform implements TransformAction<MixinTransform.Parameters> {
+/**
+ * Applies the mixins for an artifact's module to it. Outputs are reproducible and keyed on the artifact's content and file name
+ * rather than its full path, so they can be shared through a remote build cache. The file name is part of the key because the
+ * module is guessed from it.
+ */
+@CacheableTransform
+public abstract class MixinTransform<P extends MixinTransform.Parameters> implements TransformAction<P> {
 	private static final Logger logger = LoggerFactory.getLogger(MixinTransform.class);
 
+	/**
+	 * The nested {@link ApplyMixins} cover everything which changes the output: the mixin sources, the application type and the
+	 * library fingerprint, which includes handler providers.
+	 */
 	public interface Parameters extends TransformParameters {
 		@Nested
 		MapProperty<String, ApplyMixins> getPerDependencyApplyMixins();
@@ -29,14 +43,15 @@ public abstract class MixinTransform implements TransformAction<MixinTransform.P
 		String getArtifactType();
 
 		void setArtifactType(String value);
-
-		@Input
-		String getCacheBust();
-
-		void setCacheBust(String value);
 	}
 
+	/**
+	 * @return applicators shared with other transforms, or null to build one for this transform
+	 */
+	protected abstract ApplicatorCache getApplicatorCache();
+
 	@InputArtifact
+	@PathSensitive(PathSensitivity.NAME_ONLY)
 	public abstract Provider<FileSystemLocation> getInputArtifact();
 
 	@Override
@@ -58,7 +73,18 @@ public abstract class MixinTransform implements TransformAction<MixinTransform.P
 			return;
 		}
 
-		applier.transformArtifact(input, outputs.file(input.getName()));
+		applier.transformArtifact(input, outputs.file(input.getName()), getApplicatorCache());
+	}
+
+	/**
+	 * Builds an applicator for each artifact, for gradle versions without build services
+	 */
+	@CacheableTransform
+	public abstract static class Isolated extends MixinTransform<Parameters> {
+		@Override
+		protected ApplicatorCache getApplicatorCache() {
+			return null;
+		}
 	}
 
 	// TODO this is awful but we don't get module data any other way? :C
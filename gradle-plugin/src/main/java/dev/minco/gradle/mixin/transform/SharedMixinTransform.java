@@ -0,0 +1,25 @@
+package dev.minco.gradle.mixin.transform;
+
+import org.gradle.api.artifacts.transform.CacheableTransform;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Internal;
+
+import dev.minco.gradle.mixin.ApplicatorCache;
+import dev.minco.gradle.mixin.MixinApplicatorService;
+
+/**
+ * Transform which shares applicators through {@link MixinApplicatorService}. Only loaded on gradle 6.1 or newer, as its
+ * parameters reference a build service.
+ */
+@CacheableTransform
+public abstract class SharedMixinTransform extends MixinTransform<SharedMixinTransform.Parameters> {
+	public interface Parameters extends MixinTransform.Parameters {
+		@Internal
+		Property<MixinApplicatorService> getApplicatorService();
+	}
+
+	@Override
+	protected ApplicatorCache getApplicatorCache() {
+		return getParameters().getApplicatorService().getOrNull();
+	}
+}
@@ -0,0 +1,130 @@
+package dev.minco.gradle.mixin.worker;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.inject.Inject;
+
+import lombok.NonNull;
+import lombok.val;
+
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.workers.WorkAction;
+import org.gradle.workers.WorkParameters;
+import org.gradle.workers.WorkQueue;
+import org.gradle.workers.WorkerExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import dev.minco.gradle.mixin.ApplyMixins;
+import dev.minco.gradle.mixin.MixinApplicatorService;
+import dev.minco.gradle.mixin.WorkerIsolation;
+import dev.minco.mixin.internal.ApplicationType;
+
+/**
+ * Transforms a batch of artifacts for an {@link dev.minco.gradle.mixin.ApplyMixinsTask}. Requires gradle 6.1 or newer.
+ */
+public abstract class ApplyMixinsWorkAction implements WorkAction<ApplyMixinsWorkAction.Parameters> {
+	private static final Logger logger = LoggerFactory.getLogger(ApplyMixinsWorkAction.class);
+
+	public interface Parameters extends WorkParameters {
+		ConfigurableFileCollection getMixinSource();
+
+		Property<ApplicationType> getApplicationType();
+
+		Property<File> getCacheDirectory();
+
+		ListProperty<File> getInputArtifacts();
+
+		ListProperty<File> getOutputArtifacts();
+
+		/**
+		 * Only set with {@link WorkerIsolation#NONE}, as build services can't be used from another process
+		 */
+		Property<MixinApplicatorService> getApplicatorService();
+	}
+
+	@Inject
+	public abstract ObjectFactory getObjects();
+
+	@Override
+	public void execute() {
+		val params = getParameters();
+		val applyMixins = getObjects().newInstance(ApplyMixins.class);
+		applyMixins.getMixinSource().from(params.getMixinSource());
+		applyMixins.getApplicationType().set(params.getApplicationType());
+		applyMixins.getCacheDirectory().set(params.getCacheDirectory());
+		val applicator = applyMixins.getApplicator(params.getApplicatorService().getOrNull());
+
+		val inputs = params.getInputArtifacts().get();
+		val outputs = params.getOutputArtifacts().get();
+		for (int i = 0; i < inputs.size(); i++) {
+			val output = outputs.get(i);
+			logger.info("Transforming " + inputs.get(i) + " to " + output);
+			output.getParentFile().mkdirs();
+			applicator.transform(inputs.get(i).toPath(), output.toPath());
+		}
+	}
+
+	/**
+	 * Submits the given artifacts, split into at most {@code maxParallelism} work items
+	 *
+	 * @param artifacts output file for each input artifact
+	 * @param maxHeapSize heap size of worker processes with {@link WorkerIsolation#PROCESS}, or null for gradle's default
+	 * @param maxParallelism maximum work items, or 0 for one per artifact
+	 * @param service shared applicators, or null. Not used with {@link WorkerIsolation#PROCESS}.
+	 * @return the queue the work was submitted to
+	 */
+	@NonNull
+	public static WorkQueue submit(@NonNull WorkerExecutor executor, @NonNull ApplyMixins applyMixins, @NonNull Map<File, File> artifacts,
+		@NonNull WorkerIsolation isolation, String maxHeapSize, int maxParallelism, MixinApplicatorService service) {
+		WorkQueue queue;
+		switch (isolation) {
+			case NONE:
+				queue = executor.noIsolation();
+				break;
+			case PROCESS:
+				queue = executor.processIsolation(spec -> {
+					if (maxHeapSize != null)
+						spec.forkOptions(options -> options.setMaxHeapSize(maxHeapSize));
+				});
+				break;
+			default:
+				throw new IllegalStateException("Unexpected value: " + isolation);
+		}
+
+		val batches = maxParallelism > 0 ? Math.min(maxParallelism, artifacts.size()) : artifacts.size();
+		val inputs = new ArrayList<List<File>>();
+		val outputs = new ArrayList<List<File>>();
+		for (int i = 0; i < batches; i++) {
+			inputs.add(new ArrayList<>());
+			outputs.add(new ArrayList<>());
+		}
+		int i = 0;
+		for (val entry : artifacts.entrySet()) {
+			inputs.get(i % batches).add(entry.getKey());
+			outputs.get(i % batches).add(entry.getValue());
+			i++;
+		}
+
+		for (int batch = 0; batch < batches; batch++) {
+			val batchInputs = inputs.get(batch);
+			val batchOutputs = outputs.get(batch);
+			queue.submit(ApplyMixinsWorkAction.class, params -> {
+				params.getMixinSource().from(applyMixins.getMixinSource());
+				params.getApplicationType().set(applyMixins.getApplicationType());
+				params.getCacheDirectory().set(applyMixins.getCacheDirectory());
+				params.getInputArtifacts().set(batchInputs);
+				params.getOutputArtifacts().set(batchOutputs);
+				if (isolation == WorkerIsolation.NONE && service != null)
+					params.getApplicatorService().set(service);
+			});
+		}
+		return queue;
+	}
+}
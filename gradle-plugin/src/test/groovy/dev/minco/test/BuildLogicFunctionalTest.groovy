@@ -64,4 +64,41 @@ class BuildLogicFunctionalTest extends Specification {
 		// first version with working @Nested in a managed type
 		"5.6" | JavaVersion.VERSION_11
 	}
+
+	def "editing a mixin only transforms the artifacts it targets"() {
+		given:
+		new AntBuilder().copy( todir:testProjectDir.root.canonicalFile ) {
+			fileset( dir:'test-template' )
+		}
+		new AntBuilder().copy( todir:mixinJavaDir ) {
+			fileset( dir:'src/test/java' )
+		}
+		new File(testProjectDir.root, 'build.gradle') << """
+mixin {
+	target("mixins", [dependencies.create('com.google.guava:guava:25.1-jre'), dependencies.create('com.google.code.findbugs:jsr305:3.0.2')])
+}
+"""
+		def repo = new File(testProjectDir.root, 'mixins/build/mixin')
+		def guava = new File(repo, 'com/google/guava/guava/25.1-jre-final/guava-25.1-jre-final.jar')
+		def jsr305 = new File(repo, 'com/google/code/findbugs/jsr305/3.0.2-final/jsr305-3.0.2-final.jar')
+		def runner = GradleRunner.create()
+			.withProjectDir(testProjectDir.root)
+			.withArguments(':mixins:applyMixins', '--stacktrace', '--info')
+			.withPluginClasspath()
+
+		when:
+		runner.build()
+		def guavaBytes = guava.bytes
+		def jsr305Modified = jsr305.lastModified()
+		def mixin = new File(mixinJavaDir, 'dev/minco/test/mixins/MixinFiles.java')
+		mixin.text = mixin.text.replace('{0, 1, 2, 3, 4}', '{0, 1, 2, 3, 5}')
+		Thread.sleep(1000)
+		def result = runner.build()
+
+		then:
+		result.task(":mixins:applyMixins").outcome == SUCCESS
+		result.output.contains("Transforming 1 of 2 target artifacts")
+		guava.bytes != guavaBytes
+		jsr305.lastModified() == jsr305Modified
+	}
 }
@@ -0,0 +1,24 @@
+plugins {
+	id("java")
+	id("java-library")
+	id("maven-publish")
+}
+
+java {
+	// jdk.jfr is only available from Java 11
+	sourceCompatibility = JavaVersion.VERSION_11
+	targetCompatibility = JavaVersion.VERSION_11
+}
+
+dependencies {
+	api(project(":"))
+}
+
+publishing {
+	publications {
+		create<MavenPublication>("maven") {
+			artifactId = "mixin-jfr"
+			from(components["java"])
+		}
+	}
+}
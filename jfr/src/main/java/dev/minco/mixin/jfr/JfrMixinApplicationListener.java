@@ -0,0 +1,166 @@
+package dev.minco.mixin.jfr;
+
+import java.nio.file.Path;
+
+import jdk.jfr.*;
+
+import dev.minco.javatransformer.api.ClassMember;
+import dev.minco.javatransformer.api.MethodInfo;
+import dev.minco.mixin.Inject;
+import dev.minco.mixin.internal.ApplicationPlan;
+import dev.minco.mixin.internal.MixinApplicationListener;
+
+/**
+ * Emits a JFR event for each {@link MixinApplicationListener} callback, so mixin work can be seen alongside GC and I/O in a recording.
+ * <p>
+ * Durations are measured by {@link dev.minco.mixin.internal.MixinApplicator} and stored in a {@code duration} field, as the events
+ * are committed after the work they describe. Events are only created while enabled in the running recording.
+ */
+public class JfrMixinApplicationListener implements MixinApplicationListener {
+	@Override
+	public void sourceDiscovered(Path source, int mixins, long nanos) {
+		SourceDiscovered event = new SourceDiscovered();
+		if (!event.isEnabled())
+			return;
+		event.source = source.toString();
+		event.mixins = mixins;
+		event.duration = nanos;
+		event.commit();
+	}
+
+	@Override
+	public void planBuilt(ApplicationPlan plan, long nanos) {
+		PlanBuilt event = new PlanBuilt();
+		if (!event.isEnabled())
+			return;
+		event.targets = plan.getTargetCount();
+		event.duration = nanos;
+		event.commit();
+	}
+
+	@Override
+	public void handlerApplied(String target, Class<? extends java.lang.annotation.Annotation> annotationType, ClassMember annotated, long nanos) {
+		HandlerApplied event = new HandlerApplied();
+		if (!event.isEnabled())
+			return;
+		event.target = target;
+		event.annotation = annotationType.getName();
+		event.member = annotated.getClassInfo().getName() + '.' + annotated.getName();
+		event.duration = nanos;
+		event.commit();
+	}
+
+	@Override
+	public void injectionSitesFound(String target, MethodInfo targetMethod, Inject inject, int sites) {
+		InjectionSitesFound event = new InjectionSitesFound();
+		if (!event.isEnabled())
+			return;
+		event.target = target;
+		event.method = targetMethod.getName();
+		event.injectable = inject.injectable();
+		event.sites = sites;
+		event.commit();
+	}
+
+	@Override
+	public void targetTransformed(String target, long nanos) {
+		TargetTransformed event = new TargetTransformed();
+		if (!event.isEnabled())
+			return;
+		event.target = target;
+		event.duration = nanos;
+		event.commit();
+	}
+
+	@Override
+	public void classWritten(String target, long bytesIn, long bytesOut, boolean cached) {
+		ClassWritten event = new ClassWritten();
+		if (!event.isEnabled())
+			return;
+		event.target = target;
+		event.bytesIn = bytesIn;
+		event.bytesOut = bytesOut;
+		event.cached = cached;
+		event.commit();
+	}
+
+	@Name("dev.minco.mixin.SourceDiscovered")
+	@Label("Mixin Source Discovered")
+	@Category("Mixin")
+	static class SourceDiscovered extends Event {
+		@Label("Source")
+		String source;
+		@Label("Mixins")
+		int mixins;
+		@Label("Duration")
+		@Timespan
+		long duration;
+	}
+
+	@Name("dev.minco.mixin.PlanBuilt")
+	@Label("Mixin Plan Built")
+	@Category("Mixin")
+	static class PlanBuilt extends Event {
+		@Label("Targets")
+		int targets;
+		@Label("Duration")
+		@Timespan
+		long duration;
+	}
+
+	@Name("dev.minco.mixin.HandlerApplied")
+	@Label("Mixin Handler Applied")
+	@Category("Mixin")
+	static class HandlerApplied extends Event {
+		@Label("Target")
+		String target;
+		@Label("Annotation")
+		String annotation;
+		@Label("Member")
+		String member;
+		@Label("Duration")
+		@Timespan
+		long duration;
+	}
+
+	@Name("dev.minco.mixin.InjectionSitesFound")
+	@Label("Mixin Injection Sites Found")
+	@Category("Mixin")
+	static class InjectionSitesFound extends Event {
+		@Label("Target")
+		String target;
+		@Label("Method")
+		String method;
+		@Label("Injectable")
+		String injectable;
+		@Label("Sites")
+		int sites;
+	}
+
+	@Name("dev.minco.mixin.TargetTransformed")
+	@Label("Mixin Target Transformed")
+	@Category("Mixin")
+	static class TargetTransformed extends Event {
+		@Label("Target")
+		String target;
+		@Label("Duration")
+		@Timespan
+		long duration;
+	}
+
+	@Name("dev.minco.mixin.ClassWritten")
+	@Label("Mixin Class Written")
+	@Category("Mixin")
+	static class ClassWritten extends Event {
+		@Label("Target")
+		String target;
+		@Label("Bytes In")
+		@DataAmount
+		long bytesIn;
+		@Label("Bytes Out")
+		@DataAmount
+		long bytesOut;
+		@Label("Cached")
+		boolean cached;
+	}
+}
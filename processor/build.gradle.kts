@@ -0,0 +1,26 @@
+plugins {
+	id("java")
+	id("java-library")
+	id("maven-publish")
+}
+
+dependencies {
+	implementation(project(":"))
+	testImplementation("junit:junit:4.13.2")
+
+	// compileOnly, so lombok isn't added to the annotation processor path of projects using this processor
+	val lombok = "org.projectlombok:lombok:1.18.18"
+	compileOnly(lombok)
+	annotationProcessor(lombok)
+	testCompileOnly(lombok)
+	testAnnotationProcessor(lombok)
+}
+
+publishing {
+	publications {
+		create<MavenPublication>("maven") {
+			artifactId = "mixin-processor"
+			from(components["java"])
+		}
+	}
+}
@@ -0,0 +1,127 @@
+package dev.minco.mixin.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.TypeKind;
+import javax.tools.Diagnostic;
+import javax.tools.StandardLocation;
+
+import lombok.val;
+
+import dev.minco.mixin.Add;
+import dev.minco.mixin.Inject;
+import dev.minco.mixin.Injectable;
+import dev.minco.mixin.Mixin;
+import dev.minco.mixin.internal.MixinIndex;
+
+/**
+ * Writes a {@link MixinIndex} of every {@link Mixin} class in the compilation, so {@link dev.minco.mixin.internal.MixinApplicator}
+ * only needs to parse those classes.
+ * <p>
+ * Also reports, at compile time, mistakes which would otherwise only be found when mixins are applied: non-abstract mixins,
+ * mixins without a target, duplicate or missing injectables, and {@link Add}ed fields whose name doesn't end with '_'.
+ */
+@SupportedAnnotationTypes("dev.minco.mixin.Mixin")
+public class MixinIndexProcessor extends AbstractProcessor {
+	private static final String ANNOTATION_PACKAGE = Mixin.class.getPackage().getName();
+	private final Map<String, String> mixins = new TreeMap<>();
+	private final Set<String> members = new TreeSet<>();
+	private final List<Element> originatingElements = new ArrayList<>();
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		if (roundEnv.processingOver()) {
+			if (!mixins.isEmpty())
+				writeIndex();
+			return false;
+		}
+
+		for (Element element : roundEnv.getElementsAnnotatedWith(Mixin.class))
+			if (element.getKind().isClass())
+				processMixin((TypeElement) element);
+		return false;
+	}
+
+	private void processMixin(TypeElement type) {
+		val name = processingEnv.getElementUtils().getBinaryName(type).toString();
+		if (!type.getModifiers().contains(Modifier.ABSTRACT))
+			error(type, name + " must be abstract to use @Mixin");
+
+		val target = getTarget(type);
+		if (target == null) {
+			error(type, name + " must extend its target class or set @Mixin(target)");
+			return;
+		}
+		mixins.put(name, target);
+		originatingElements.add(type);
+
+		val injectables = new HashSet<String>();
+		for (Element member : type.getEnclosedElements()) {
+			val injectable = member.getAnnotation(Injectable.class);
+			if (injectable != null) {
+				val injectableName = injectable.name().isEmpty() ? member.getSimpleName().toString() : injectable.name();
+				if (!injectables.add(injectableName))
+					error(member, "Duplicate injectable name " + injectableName + " in " + name);
+			}
+		}
+
+		for (Element member : type.getEnclosedElements()) {
+			for (Inject inject : member.getAnnotationsByType(Inject.class))
+				if (!injectables.contains(inject.injectable()))
+					error(member, "Couldn't find injectable with name " + inject.injectable() + " in " + name);
+
+			if (member.getKind() == ElementKind.FIELD && member.getAnnotation(Add.class) != null && !member.getSimpleName().toString().endsWith("_"))
+				error(member, "Name of @Add-ed field must end with '_'");
+
+			for (AnnotationMirror annotation : member.getAnnotationMirrors()) {
+				val annotationType = (TypeElement) annotation.getAnnotationType().asElement();
+				if (processingEnv.getElementUtils().getPackageOf(annotationType).getQualifiedName().contentEquals(ANNOTATION_PACKAGE))
+					members.add("member " + name + ' ' + annotationType.getQualifiedName() + ' ' + member.getSimpleName());
+			}
+		}
+	}
+
+	private String getTarget(TypeElement type) {
+		val target = type.getAnnotation(Mixin.class).target();
+		if (!target.isEmpty())
+			return target;
+
+		val superType = type.getSuperclass();
+		if (superType.getKind() != TypeKind.DECLARED)
+			return null;
+		val superName = processingEnv.getElementUtils().getBinaryName((TypeElement) processingEnv.getTypeUtils().asElement(superType)).toString();
+		return Object.class.getName().equals(superName) ? null : superName;
+	}
+
+	private void error(Element element, String message) {
+		processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+	}
+
+	private void writeIndex() {
+		try {
+			val resource = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", MixinIndex.PATH, originatingElements.toArray(new Element[0]));
+			try (Writer writer = resource.openWriter()) {
+				writer.write(MixinIndex.FORMAT);
+				writer.write('\n');
+				for (Map.Entry<String, String> mixin : mixins.entrySet())
+					writer.write("mixin " + mixin.getKey() + ' ' + mixin.getValue() + '\n');
+				for (String member : members)
+					writer.write(member + '\n');
+			}
+		} catch (IOException e) {
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Failed to write " + MixinIndex.PATH + ": " + e);
+		}
+	}
+}
@@ -0,0 +1,175 @@
+package dev.minco.mixin.processor;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+import javax.tools.*;
+
+import lombok.val;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import dev.minco.mixin.internal.MixinIndex;
+
+public class MixinIndexProcessorTest {
+	private static final JavaFileObject TARGET = source("test.Target",
+		"package test;",
+		"public class Target {",
+		"	public void run() {}",
+		"}");
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static JavaFileObject source(String className, String... lines) {
+		val code = String.join("\n", lines);
+		return new SimpleJavaFileObject(URI.create("string:///" + className.replace('.', '/') + JavaFileObject.Kind.SOURCE.extension), JavaFileObject.Kind.SOURCE) {
+			@Override
+			public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+				return code;
+			}
+		};
+	}
+
+	private List<Diagnostic<? extends JavaFileObject>> compile(Path output, JavaFileObject... sources) {
+		val compiler = ToolProvider.getSystemJavaCompiler();
+		val diagnostics = new DiagnosticCollector<JavaFileObject>();
+		val options = Arrays.asList("-d", output.toString(), "-classpath", System.getProperty("java.class.path"));
+		val task = compiler.getTask(null, null, diagnostics, options, null, Arrays.asList(sources));
+		task.setProcessors(Collections.singletonList(new MixinIndexProcessor()));
+		task.call();
+		return diagnostics.getDiagnostics();
+	}
+
+	private void assertError(String message, JavaFileObject... sources) throws Exception {
+		val diagnostics = compile(folder.newFolder().toPath(), sources);
+		for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics)
+			if (diagnostic.getKind() == Diagnostic.Kind.ERROR && diagnostic.getMessage(Locale.ROOT).contains(message))
+				return;
+		Assert.fail("Expected error containing '" + message + "', got " + diagnostics.stream().map(it -> it.getMessage(Locale.ROOT)).collect(Collectors.toList()));
+	}
+
+	@Test
+	public void testIndexListsMixinsAndMembers() throws Exception {
+		val output = folder.newFolder().toPath();
+		val nested = source("test.Outer",
+			"package test;",
+			"import dev.minco.mixin.*;",
+			"public class Outer {",
+			"	@Mixin",
+			"	public abstract static class Nested extends Target {",
+			"		@Injectable",
+			"		public void hook() {}",
+			"",
+			"		@Override",
+			"		@Inject(injectable = \"hook\", type = Type.BODY)",
+			"		public abstract void run();",
+			"	}",
+			"}");
+		val explicit = source("test.Explicit",
+			"package test;",
+			"import dev.minco.mixin.*;",
+			"@Mixin(target = \"test.Other\")",
+			"public abstract class Explicit {}");
+
+		val diagnostics = compile(output, TARGET, nested, explicit);
+		Assert.assertTrue(diagnostics.toString(), diagnostics.stream().noneMatch(it -> it.getKind() == Diagnostic.Kind.ERROR));
+
+		val index = Files.readAllLines(output.resolve(MixinIndex.PATH), StandardCharsets.UTF_8);
+		Assert.assertEquals(Arrays.asList(
+			MixinIndex.FORMAT,
+			"mixin test.Explicit test.Other",
+			// nested mixins use their binary name, the target is inferred from the super type
+			"mixin test.Outer$Nested test.Target",
+			"member test.Outer$Nested dev.minco.mixin.Inject run",
+			"member test.Outer$Nested dev.minco.mixin.Injectable hook"
+		), index);
+	}
+
+	@Test
+	public void testNestedTargetUsesBinaryName() throws Exception {
+		val output = folder.newFolder().toPath();
+		val target = source("test.Holder",
+			"package test;",
+			"public class Holder {",
+			"	public static class Inner {}",
+			"}");
+		val mixin = source("test.InnerMixin",
+			"package test;",
+			"import dev.minco.mixin.*;",
+			"@Mixin",
+			"public abstract class InnerMixin extends Holder.Inner {}");
+
+		val diagnostics = compile(output, target, mixin);
+		Assert.assertTrue(diagnostics.toString(), diagnostics.stream().noneMatch(it -> it.getKind() == Diagnostic.Kind.ERROR));
+		Assert.assertEquals(Arrays.asList(MixinIndex.FORMAT, "mixin test.InnerMixin test.Holder$Inner"), Files.readAllLines(output.resolve(MixinIndex.PATH), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void testMixinWithoutTargetIsAnError() throws Exception {
+		assertError("test.NoTarget must extend its target class or set @Mixin(target)", source("test.NoTarget",
+			"package test;",
+			"import dev.minco.mixin.*;",
+			"@Mixin",
+			"public abstract class NoTarget {}"));
+	}
+
+	@Test
+	public void testNonAbstractMixinIsAnError() throws Exception {
+		assertError("test.Concrete must be abstract to use @Mixin", TARGET, source("test.Concrete",
+			"package test;",
+			"import dev.minco.mixin.*;",
+			"@Mixin",
+			"public class Concrete extends Target {}"));
+	}
+
+	@Test
+	public void testAddedFieldWithoutTrailingUnderscoreIsAnError() throws Exception {
+		assertError("Name of @Add-ed field must end with '_'", TARGET, source("test.AddedField",
+			"package test;",
+			"import dev.minco.mixin.*;",
+			"@Mixin",
+			"public abstract class AddedField extends Target {",
+			"	@Add",
+			"	public int added;",
+			"}"));
+	}
+
+	@Test
+	public void testDuplicateInjectableIsAnError() throws Exception {
+		assertError("Duplicate injectable name hook in test.Duplicate", TARGET, source("test.Duplicate",
+			"package test;",
+			"import dev.minco.mixin.*;",
+			"@Mixin",
+			"public abstract class Duplicate extends Target {",
+			"	@Injectable(name = \"hook\")",
+			"	public void first() {}",
+			"",
+			"	@Injectable(name = \"hook\")",
+			"	public void second() {}",
+			"}"));
+	}
+
+	@Test
+	public void testMissingInjectableIsAnError() throws Exception {
+		assertError("Couldn't find injectable with name missing in test.Missing", TARGET, source("test.Missing",
+			"package test;",
+			"import dev.minco.mixin.*;",
+			"@Mixin",
+			"public abstract class Missing extends Target {",
+			"	@Override",
+			"	@Inject(injectable = \"missing\", type = Type.BODY)",
+			"	public abstract void run();",
+			"}"));
+	}
+}
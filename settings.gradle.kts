@@ -1,2 +1,9 @@
 rootProject.name = "mixin"
 include("gradle-plugin")
+// jdk.jfr is only available from Java 11, and CI still builds with Java 8
+if (JavaVersion.current().isJava11Compatible) {
+	include("jfr")
+}
+include("benchmarks")
+include("agent")
+include("processor")
@@ -13,4 +13,16 @@ public @interface Injectable {
 	 * @see Inject
 	 **/
 	String name() default "";
+
+	/**
+	 * Whether to keep the code of this injectable out of the methods it is injected into
+	 * <p>
+	 * The body of an out of line injectable must be a single call to a static helper method declared in the same mixin, passing
+	 * {@code this} and any other values the helper needs. The helper is added to the target once, marked synthetic, and only the
+	 * call is inserted at each injection site. Use this when an injectable is inserted at many sites, so the target method stays
+	 * small enough for the JIT to inline and compile it.
+	 * <p>
+	 * The helper must have a name which is unique in the mixin and is not already used in the target.
+	 **/
+	boolean outOfLine() default false;
 }
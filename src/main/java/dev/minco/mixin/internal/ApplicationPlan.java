@@ -0,0 +1,115 @@
+package dev.minco.mixin.internal;
+
+import java.util.*;
+
+import lombok.val;
+
+/**
+ * Every handler which will be applied to each target class, merged across all mixins targeting that class.
+ * <p>
+ * Handlers for a target are sorted by their sort index. Handlers with the same index are applied in mixin discovery order.
+ */
+public final class ApplicationPlan {
+	private final Map<String, List<MixinApplicator.Applier>> appliers;
+	private final Map<String, List<String>> mixins;
+	private final Map<String, String> mixinHashes;
+
+	private ApplicationPlan(Map<String, List<MixinApplicator.Applier>> appliers, Map<String, List<String>> mixins, Map<String, String> mixinHashes) {
+		this.appliers = appliers;
+		this.mixins = mixins;
+		this.mixinHashes = mixinHashes;
+	}
+
+	/**
+	 * @return names of all classes targeted by at least one mixin, in discovery order
+	 */
+	public Set<String> getTargets() {
+		return appliers.keySet();
+	}
+
+	public int getTargetCount() {
+		return appliers.size();
+	}
+
+	/**
+	 * @return number of handlers which will be applied to the given target, or 0 if it is not targeted
+	 */
+	public int getHandlerCount(String target) {
+		val forTarget = appliers.get(target);
+		return forTarget == null ? 0 : forTarget.size();
+	}
+
+	/**
+	 * @return names of the mixin classes targeting the given class, in discovery order
+	 */
+	public List<String> getMixins(String target) {
+		val forTarget = mixins.get(target);
+		return forTarget == null ? Collections.emptyList() : forTarget;
+	}
+
+	public boolean isTarget(String className) {
+		return appliers.containsKey(className);
+	}
+
+	List<MixinApplicator.Applier> getAppliers(String target) {
+		val forTarget = appliers.get(target);
+		return forTarget == null ? Collections.emptyList() : forTarget;
+	}
+
+	/**
+	 * @return names of the methods annotated in mixins targeting the given class, which handlers may change
+	 */
+	Set<String> getMethodNames(String target) {
+		val names = new HashSet<String>();
+		for (MixinApplicator.Applier applier : getAppliers(target)) {
+			val name = applier.getMethodName();
+			if (name != null)
+				names.add(name);
+		}
+		return names;
+	}
+
+	/**
+	 * @return hash of the given mixin class, taken from the source it was discovered in when it was discovered
+	 */
+	String getMixinHash(String mixin) {
+		return mixinHashes.get(mixin);
+	}
+
+	@Override
+	public String toString() {
+		val sb = new StringBuilder("ApplicationPlan(").append(appliers.size()).append(" targets)");
+		appliers.forEach((target, forTarget) -> {
+			sb.append("\n\t").append(target).append(": ").append(forTarget.size()).append(" handlers");
+			for (MixinApplicator.Applier applier : forTarget)
+				sb.append("\n\t\t").append(applier);
+		});
+		return sb.toString();
+	}
+
+	static class Builder {
+		private final Map<String, List<MixinApplicator.Applier>> appliers = new LinkedHashMap<>();
+		private final Map<String, List<String>> mixins = new LinkedHashMap<>();
+		private final Map<String, String> mixinHashes = new HashMap<>();
+
+		Builder add(String target, String mixin, String hash, List<MixinApplicator.Applier> forTarget) {
+			appliers.computeIfAbsent(target, k -> new ArrayList<>()).addAll(forTarget);
+			mixins.computeIfAbsent(target, k -> new ArrayList<>()).add(mixin);
+			mixinHashes.put(mixin, hash);
+			return this;
+		}
+
+		ApplicationPlan build() {
+			val result = new LinkedHashMap<String, List<MixinApplicator.Applier>>();
+			appliers.forEach((target, forTarget) -> {
+				val sorted = new ArrayList<MixinApplicator.Applier>(forTarget);
+				// List.sort is stable, keeping discovery order for handlers with the same index
+				sorted.sort(Comparator.comparingInt(MixinApplicator.Applier::getSortIndex));
+				result.put(target, Collections.unmodifiableList(sorted));
+			});
+			val mixinsResult = new HashMap<String, List<String>>();
+			mixins.forEach((target, forTarget) -> mixinsResult.put(target, Collections.unmodifiableList(new ArrayList<>(forTarget))));
+			return new ApplicationPlan(Collections.unmodifiableMap(result), mixinsResult, new HashMap<>(mixinHashes));
+		}
+	}
+}
@@ -0,0 +1,85 @@
+package dev.minco.mixin.internal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import lombok.experimental.UtilityClass;
+import lombok.val;
+
+/**
+ * Deletes entries of {@link ClassOutputCache} and {@link MixinSourceCache} which have not been used for {@link #MAX_UNUSED_DAYS}.
+ * <p>
+ * Caches refresh the modification time of an entry whenever it is read, so it is the time of last use. The cache directory is
+ * scanned at most once a day, tracked by the modification time of a marker file, and at most once per JVM.
+ */
+@UtilityClass
+class CacheCleanup {
+	static final int MAX_UNUSED_DAYS = 30;
+	private static final String MARKER = "last-cleanup";
+	private static final long INTERVAL = TimeUnit.DAYS.toMillis(1);
+	private static final Set<Path> cleaned = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * Cleans the given cache directory if it has not been cleaned in the last day
+	 */
+	static void cleanIfDue(Path cacheDirectory) {
+		if (!cleaned.add(cacheDirectory.toAbsolutePath().normalize()))
+			return;
+
+		val marker = cacheDirectory.resolve(MARKER);
+		val now = System.currentTimeMillis();
+		try {
+			if (Files.isRegularFile(marker) && now - Files.getLastModifiedTime(marker).toMillis() < INTERVAL)
+				return;
+			Files.createDirectories(cacheDirectory);
+			if (!Files.exists(marker))
+				Files.createFile(marker);
+			Files.setLastModifiedTime(marker, FileTime.fromMillis(now));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		val cutoff = now - TimeUnit.DAYS.toMillis(MAX_UNUSED_DAYS);
+		deleteOlderThan(cacheDirectory.resolve("classes"), cutoff);
+		deleteOlderThan(cacheDirectory.resolve("sources"), cutoff);
+	}
+
+	static void deleteOlderThan(Path directory, long cutoff) {
+		if (!Files.isDirectory(directory))
+			return;
+
+		List<Path> files;
+		try (Stream<Path> stream = Files.walk(directory)) {
+			files = stream.filter(Files::isRegularFile).collect(Collectors.toList());
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		for (Path file : files) {
+			try {
+				if (Files.getLastModifiedTime(file).toMillis() < cutoff)
+					Files.deleteIfExists(file);
+			} catch (IOException ignored) {
+				// another process may be using or deleting it
+			}
+		}
+	}
+
+	/**
+	 * Marks a cache entry as used now
+	 */
+	static void touch(Path file) {
+		try {
+			Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+		} catch (IOException ignored) {
+			// a read-only cache is still usable, its entries just won't be kept alive
+		}
+	}
+}
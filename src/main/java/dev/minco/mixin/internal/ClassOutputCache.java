@@ -0,0 +1,57 @@
+package dev.minco.mixin.internal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.*;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.val;
+
+/**
+ * Content-addressed on-disk cache of transformed class bytes.
+ * <p>
+ * Keys combine a hash of the untransformed class with {@link MixinApplicator#getTargetFingerprint(String)}, so an entry is reused
+ * only when neither the class nor any mixin applied to it has changed.
+ */
+@RequiredArgsConstructor
+class ClassOutputCache {
+	@NonNull
+	private final Path directory;
+
+	static String key(byte[] input, String targetFingerprint) {
+		return ContentHash.of(ContentHash.of(input), targetFingerprint);
+	}
+
+	/**
+	 * @return the cached transformed bytes, or null on a miss
+	 */
+	byte[] get(String key) {
+		val file = resolve(key);
+		if (!Files.isRegularFile(file))
+			return null;
+		try {
+			val data = Files.readAllBytes(file);
+			CacheCleanup.touch(file);
+			return data;
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	void put(String key, byte[] data) {
+		val file = resolve(key);
+		try {
+			Files.createDirectories(file.getParent());
+			val temp = Files.createTempFile(file.getParent(), key, ".tmp");
+			Files.write(temp, data);
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private Path resolve(String key) {
+		return directory.resolve(key.substring(0, 2)).resolve(key);
+	}
+}
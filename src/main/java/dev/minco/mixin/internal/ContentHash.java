@@ -0,0 +1,148 @@
+package dev.minco.mixin.internal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipFile;
+
+import lombok.experimental.UtilityClass;
+import lombok.val;
+
+/**
+ * SHA-256 hashes of files, directories and byte arrays, used as cache keys
+ */
+@UtilityClass
+class ContentHash {
+	static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	static String of(byte[] data) {
+		return toHex(newDigest().digest(data));
+	}
+
+	static String of(String... parts) {
+		val digest = newDigest();
+		for (String part : parts) {
+			digest.update(part.getBytes(StandardCharsets.UTF_8));
+			digest.update((byte) 0);
+		}
+		return toHex(digest.digest());
+	}
+
+	/**
+	 * Hashes a file, or every file in a directory along with its path relative to the directory, in a stable order
+	 */
+	static String of(Path path) {
+		val digest = newDigest();
+		try {
+			if (Files.isDirectory(path)) {
+				List<Path> files;
+				try (Stream<Path> stream = Files.walk(path)) {
+					files = stream.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+				}
+				for (Path file : files) {
+					digest.update(path.relativize(file).toString().replace('\\', '/').getBytes(StandardCharsets.UTF_8));
+					digest.update((byte) 0);
+					update(digest, file);
+				}
+			} else {
+				update(digest, path);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return toHex(digest.digest());
+	}
+
+	private static void update(MessageDigest digest, Path file) throws IOException {
+		val buffer = new byte[8192];
+		try (InputStream in = Files.newInputStream(file)) {
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				digest.update(buffer, 0, read);
+			}
+		}
+	}
+
+	/**
+	 * Hashes a single class or source file from a jar or directory, falling back to the whole source if it can't be found.
+	 * <p>
+	 * The class name may use '.' to separate nested classes. A nested class is found by its binary name if it was compiled, or
+	 * by the source file of its outermost class.
+	 */
+	static String ofClass(Path source, String className) {
+		val candidates = fileCandidates(className);
+		try {
+			if (Files.isDirectory(source)) {
+				for (String candidate : candidates) {
+					val file = source.resolve(candidate);
+					if (Files.isRegularFile(file))
+						return of(Files.readAllBytes(file));
+				}
+			} else {
+				try (ZipFile zip = new ZipFile(source.toFile())) {
+					for (String candidate : candidates) {
+						val entry = zip.getEntry(candidate);
+						if (entry != null)
+							try (InputStream in = zip.getInputStream(entry)) {
+								return of(readFully(in));
+							}
+					}
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return of(source);
+	}
+
+	/**
+	 * @return paths which may hold the given class, treating each trailing name segment in turn as a nested class
+	 */
+	static List<String> fileCandidates(String className) {
+		val candidates = new ArrayList<String>();
+		String outer = className.replace('.', '/');
+		String nested = "";
+		while (true) {
+			candidates.add(outer + nested + ".class");
+			candidates.add(outer + ".java");
+			val lastSlash = outer.lastIndexOf('/');
+			if (lastSlash < 0)
+				return candidates;
+			nested = '$' + outer.substring(lastSlash + 1) + nested;
+			outer = outer.substring(0, lastSlash);
+		}
+	}
+
+	static byte[] readFully(InputStream in) throws IOException {
+		val out = new ByteArrayOutputStream();
+		val buffer = new byte[8192];
+		int read;
+		while ((read = in.read(buffer)) != -1) {
+			out.write(buffer, 0, read);
+		}
+		return out.toByteArray();
+	}
+
+	static String toHex(byte[] hash) {
+		val sb = new StringBuilder(hash.length * 2);
+		for (byte b : hash) {
+			sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,130 @@
+package dev.minco.mixin.internal;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.val;
+
+import dev.minco.javatransformer.api.MethodInfo;
+import dev.minco.javatransformer.api.code.CodeFragment;
+import dev.minco.javatransformer.api.code.IntermediateValue;
+import dev.minco.mixin.Matcher;
+import dev.minco.mixin.Type;
+
+/**
+ * A compiled {@link Matcher} method.
+ * <p>
+ * Each fragment is reduced to a token made of its name, if it has one, and its inputs if {@link Matcher#matchConstantInputs()}
+ * is set. Inputs without a constant value only match other inputs without a constant value. The matcher's fragments of an
+ * injection's {@link Type} form a token pattern, which is found in the target's fragments of that type using Knuth-Morris-Pratt,
+ * so each target method is scanned once per matcher in linear time. The injection point is the last fragment of each match.
+ */
+@RequiredArgsConstructor
+final class FragmentMatcher {
+	/**
+	 * Token of an input with no constant value
+	 */
+	private static final String NON_CONSTANT = "?";
+	@NonNull
+	private final MethodInfo method;
+	private final boolean matchConstantInputs;
+	private final Map<Type, Pattern> patterns = new ConcurrentHashMap<>();
+
+	/**
+	 * Finds every fragment matched by any of the given matchers
+	 *
+	 * @param fragments all fragments of the given type in the target method, in order
+	 * @param tokens    cache of tokens for these fragments, indexed by whether constant inputs are included. Must have length 2.
+	 * @return matched fragments, in order
+	 */
+	static List<CodeFragment> findSites(List<? extends CodeFragment> fragments, List<FragmentMatcher> matchers, Type type, String[][] tokens) {
+		val matched = new BitSet(fragments.size());
+		for (FragmentMatcher matcher : matchers) {
+			int tokenKind = matcher.matchConstantInputs ? 1 : 0;
+			if (tokens[tokenKind] == null)
+				tokens[tokenKind] = tokenize(fragments, matcher.matchConstantInputs);
+			matcher.getPattern(type).findMatches(tokens[tokenKind], matched);
+		}
+
+		val sites = new ArrayList<CodeFragment>(matched.cardinality());
+		for (int i = matched.nextSetBit(0); i >= 0; i = matched.nextSetBit(i + 1))
+			sites.add(fragments.get(i));
+		return sites;
+	}
+
+	private Pattern getPattern(Type type) {
+		return patterns.computeIfAbsent(type, t -> {
+			val fragment = method.getCodeFragment();
+			if (fragment == null)
+				throw new MixinError("Matcher " + method + " has no code");
+			List<? extends CodeFragment> fragments = fragment.findFragments(t.getFragmentClass());
+			if (fragments.isEmpty())
+				throw new MixinError("Matcher " + method + " has no fragments of type " + t);
+			return new Pattern(tokenize(fragments, matchConstantInputs));
+		});
+	}
+
+	private static String[] tokenize(List<? extends CodeFragment> fragments, boolean constantInputs) {
+		val tokens = new String[fragments.size()];
+		for (int i = 0; i < tokens.length; i++)
+			tokens[i] = token(fragments.get(i), constantInputs);
+		return tokens;
+	}
+
+	private static String token(CodeFragment fragment, boolean constantInputs) {
+		val name = fragment instanceof CodeFragment.HasName ? ((CodeFragment.HasName) fragment).getName() : "";
+		if (!constantInputs)
+			return name;
+
+		val sb = new StringBuilder(name).append('(');
+		for (IntermediateValue input : fragment.getInputTypes()) {
+			val constant = input.constantValue;
+			// tag constants with their type, so no constant can produce the marker or be mistaken for a constant of another type
+			if (constant == null)
+				sb.append(NON_CONSTANT);
+			else
+				sb.append(constant.getClass().getName()).append(':').append(constant);
+			sb.append(',');
+		}
+		return sb.append(')').toString();
+	}
+
+	@Override
+	public String toString() {
+		return "FragmentMatcher(" + method + ", matchConstantInputs=" + matchConstantInputs + ')';
+	}
+
+	private static final class Pattern {
+		private final String[] tokens;
+		private final int[] failure;
+
+		Pattern(String[] tokens) {
+			this.tokens = tokens;
+			failure = new int[tokens.length];
+			int k = 0;
+			for (int i = 1; i < tokens.length; i++) {
+				while (k > 0 && !tokens[i].equals(tokens[k]))
+					k = failure[k - 1];
+				if (tokens[i].equals(tokens[k]))
+					k++;
+				failure[i] = k;
+			}
+		}
+
+		void findMatches(String[] text, BitSet matched) {
+			int k = 0;
+			for (int i = 0; i < text.length; i++) {
+				while (k > 0 && !text[i].equals(tokens[k]))
+					k = failure[k - 1];
+				if (text[i].equals(tokens[k]))
+					k++;
+				if (k == tokens.length) {
+					matched.set(i);
+					k = failure[k - 1];
+				}
+			}
+		}
+	}
+}
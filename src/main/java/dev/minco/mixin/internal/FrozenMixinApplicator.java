@@ -0,0 +1,162 @@
+package dev.minco.mixin.internal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import lombok.NonNull;
+import lombok.val;
+
+/**
+ * An immutable snapshot of a {@link MixinApplicator}, created with {@link MixinApplicator#freeze()}.
+ * <p>
+ * The {@link ApplicationPlan} is built once, when the snapshot is created. Parsed mixin classes are not safe to use from several
+ * threads, so each other thread which transforms with the snapshot parses the mixins again into its own copy of the applicator,
+ * which must find the same mixins. Every call creates its own transformer and tracks which targets it applied, so one snapshot
+ * can be used by many threads at once. Changes made to the original applicator afterwards do not affect the snapshot.
+ */
+public final class FrozenMixinApplicator {
+	private final MixinApplicator applicator;
+	private final ClassOutputCache cache;
+	private final ThreadLocal<MixinApplicator> threadApplicators = ThreadLocal.withInitial(this::copyForThread);
+
+	FrozenMixinApplicator(@NonNull MixinApplicator applicator) {
+		this.applicator = applicator;
+		threadApplicators.set(applicator);
+		val cacheDirectory = applicator.getCacheDirectory();
+		cache = cacheDirectory == null ? null : new ClassOutputCache(cacheDirectory.resolve("classes"));
+	}
+
+	private MixinApplicator copyForThread() {
+		val copy = applicator.copy();
+		val plan = getApplicationPlan();
+		val copyPlan = copy.getApplicationPlan();
+		if (!plan.getTargets().equals(copyPlan.getTargets()))
+			throw new MixinError("Mixin sources changed after they were frozen, targets were " + plan.getTargets() + " and are now " + copyPlan.getTargets());
+		for (String target : plan.getTargets()) {
+			val mixins = plan.getMixins(target);
+			if (!mixins.equals(copyPlan.getMixins(target)))
+				throw new MixinError("Mixin sources changed after they were frozen, mixins for " + target + " were " + mixins + " and are now " + copyPlan.getMixins(target));
+			for (String mixin : mixins)
+				if (!Objects.equals(plan.getMixinHash(mixin), copyPlan.getMixinHash(mixin)))
+					throw new MixinError("Mixin sources changed after they were frozen, " + mixin + " is different");
+		}
+		return copy;
+	}
+
+	/**
+	 * @return the applicator whose parsed mixins belong to the current thread
+	 */
+	private MixinApplicator current() {
+		return threadApplicators.get();
+	}
+
+	public ApplicationPlan getApplicationPlan() {
+		return applicator.getApplicationPlan();
+	}
+
+	/**
+	 * @see MixinApplicator#transform(Path, Path)
+	 */
+	public void transform(Path input, Path output) {
+		if (!Files.isDirectory(input)) {
+			new JarTransformer(current(), cache).transform(input, output);
+			return;
+		}
+
+		val applied = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+		val current = current();
+		current.createTransformer(applied, it -> {}).transform(input, output);
+		current.checkApplied(applied);
+	}
+
+	/**
+	 * Transforms one jar with several applicators, for example the {@link ApplicationType#PRE_PATCH} and
+	 * {@link ApplicationType#FINAL_PATCH} stages, writing one output for each. The jar is opened and each targeted class is read
+	 * once rather than once per applicator. Each applicator still parses its own copy of the classes it targets.
+	 *
+	 * @param outputs output jar for each applicator
+	 */
+	public static void transformAll(@NonNull Path input, @NonNull Map<FrozenMixinApplicator, Path> outputs) {
+		if (Files.isDirectory(input)) {
+			outputs.forEach((applicator, output) -> applicator.transform(input, output));
+			return;
+		}
+
+		val transformers = new LinkedHashMap<JarTransformer, Path>();
+		outputs.forEach((applicator, output) -> transformers.put(new JarTransformer(applicator.current(), applicator.cache), output));
+		JarTransformer.transform(input, transformers);
+	}
+
+	/**
+	 * @see MixinApplicator#transformClass(String, byte[], Path)
+	 */
+	public byte[] transformClass(String internalName, byte[] data, Path classPath) {
+		return current().transformClass(internalName, data, classPath);
+	}
+
+	/**
+	 * @see MixinApplicator#validate(Path)
+	 */
+	public ValidationReport validate(Path targets) {
+		return current().validate(targets);
+	}
+
+	/**
+	 * @see MixinApplicator#getTargetFingerprint(String)
+	 */
+	public String getTargetFingerprint(String target) {
+		return applicator.getTargetFingerprint(target);
+	}
+
+	/**
+	 * @return a hash of {@link #getTargetFingerprint(String)} for every target with a class in the given jar or directory. While
+	 * both this and the input are unchanged, transforming the input gives the same output.
+	 */
+	public String getInputFingerprint(Path input) {
+		val plan = getApplicationPlan();
+		val targets = new TreeSet<String>();
+		try {
+			if (Files.isDirectory(input)) {
+				try (Stream<Path> stream = Files.walk(input)) {
+					stream.forEach(path -> {
+						val target = JarTransformer.getTarget(plan, input.relativize(path).toString().replace('\\', '/'));
+						if (target != null)
+							targets.add(target);
+					});
+				}
+			} else {
+				try (ZipFile zip = new ZipFile(input.toFile())) {
+					Enumeration<? extends ZipEntry> entries = zip.entries();
+					while (entries.hasMoreElements()) {
+						val target = JarTransformer.getTarget(plan, entries.nextElement().getName());
+						if (target != null)
+							targets.add(target);
+					}
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		val parts = new ArrayList<String>();
+		parts.add(MixinApplicator.getLibraryFingerprint());
+		for (String target : targets) {
+			parts.add(target);
+			parts.add(getTargetFingerprint(target));
+		}
+		return ContentHash.of(parts.toArray(new String[0]));
+	}
+}
@@ -0,0 +1,163 @@
+package dev.minco.mixin.internal;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import lombok.NonNull;
+import lombok.val;
+
+import dev.minco.javatransformer.api.AccessFlags;
+import dev.minco.javatransformer.api.Annotation;
+import dev.minco.javatransformer.api.ClassInfo;
+import dev.minco.javatransformer.api.ClassMember;
+import dev.minco.javatransformer.api.MethodInfo;
+import dev.minco.javatransformer.api.code.CodeFragment;
+import dev.minco.mixin.Inject;
+import dev.minco.mixin.Injectable;
+import dev.minco.mixin.Matcher;
+
+/**
+ * Injectables and matchers declared in one mixin class, indexed by name.
+ * <p>
+ * The name of an injectable is its {@link Injectable#name()}, or its method name if that is empty. Matchers are named the
+ * same way by {@link Matcher#name()}, but several matchers may share a name. Helpers of {@link Injectable#outOfLine()}
+ * injectables are resolved when first requested, as that needs the code of the injectable.
+ */
+final class InjectableIndex {
+	private final ClassInfo mixin;
+	private final Map<String, MethodInfo> byName;
+	private final Map<String, List<FragmentMatcher>> matchers;
+	private final Set<String> outOfLine;
+	private final Map<String, MethodInfo> helpers = new ConcurrentHashMap<>();
+
+	private InjectableIndex(ClassInfo mixin, Map<String, MethodInfo> byName, Map<String, List<FragmentMatcher>> matchers, Set<String> outOfLine) {
+		this.mixin = mixin;
+		this.byName = byName;
+		this.matchers = matchers;
+		this.outOfLine = outOfLine;
+	}
+
+	/**
+	 * Indexes the injectables in a mixin class, checking that every name is unique and that every {@link Inject#injectable()} exists
+	 *
+	 * @throws MixinError listing all duplicate and missing injectables in the class
+	 */
+	static InjectableIndex of(ClassInfo clazz) {
+		val byName = new HashMap<String, MethodInfo>();
+		val duplicates = new TreeSet<String>();
+		val outOfLine = new HashSet<String>();
+		clazz.getMethods().forEach(method -> {
+			val injectable = getAnnotation(method, Injectable.class);
+			if (injectable == null)
+				return;
+
+			String name = (String) injectable.values.get("name");
+			if (name == null || name.isEmpty())
+				name = method.getName();
+			if (byName.put(name, method) != null)
+				duplicates.add(name);
+			if (Boolean.TRUE.equals(injectable.values.get("outOfLine")))
+				outOfLine.add(name);
+		});
+
+		val matchers = new HashMap<String, List<FragmentMatcher>>();
+		clazz.getMethods().forEach(method -> {
+			val matcher = getAnnotation(method, Matcher.class);
+			if (matcher == null)
+				return;
+
+			String name = (String) matcher.values.get("name");
+			if (name == null || name.isEmpty())
+				name = method.getName();
+			val matchConstantInputs = Boolean.TRUE.equals(matcher.values.get("matchConstantInputs"));
+			matchers.computeIfAbsent(name, k -> new ArrayList<>()).add(new FragmentMatcher(method, matchConstantInputs));
+		});
+
+		val missing = new TreeSet<String>();
+		val missingMatchers = new TreeSet<String>();
+		Stream.concat(Stream.of(clazz), clazz.getMembers()).forEach(member -> {
+			val inject = getAnnotation(member, Inject.class);
+			if (inject == null)
+				return;
+
+			val name = (String) inject.values.get("injectable");
+			if (name != null && !byName.containsKey(name))
+				missing.add(name);
+
+			val match = (String) inject.values.get("match");
+			if (match != null && !match.isEmpty() && !matchers.containsKey(match))
+				missingMatchers.add(match);
+		});
+
+		if (!duplicates.isEmpty() || !missing.isEmpty() || !missingMatchers.isEmpty()) {
+			val message = new StringBuilder("Invalid injectables in ").append(clazz.getName()).append(':');
+			if (!duplicates.isEmpty())
+				message.append("\n\tDuplicate names: ").append(duplicates);
+			if (!missing.isEmpty())
+				message.append("\n\tMissing names referenced by @Inject: ").append(missing);
+			if (!missingMatchers.isEmpty())
+				message.append("\n\tMissing matchers referenced by @Inject: ").append(missingMatchers);
+			throw new MixinError(message.toString());
+		}
+
+		return new InjectableIndex(clazz, byName, matchers, outOfLine);
+	}
+
+	private static Annotation getAnnotation(ClassMember member, Class<? extends java.lang.annotation.Annotation> type) {
+		for (Annotation annotation : member.getAnnotations())
+			if (annotation.type.getClassName().equals(type.getName()))
+				return annotation;
+		return null;
+	}
+
+	@NonNull
+	MethodInfo get(String name) {
+		val injectable = byName.get(name);
+		if (injectable == null)
+			throw new MixinError("Couldn't find injectable with name " + name + " in " + mixin.getName());
+		return injectable;
+	}
+
+	/**
+	 * @return the static helper called by an {@link Injectable#outOfLine()} injectable, or null if the injectable is inlined
+	 * @throws MixinError if the injectable does not consist of a single call to a static method with a unique name in the mixin
+	 */
+	MethodInfo getHelper(String name) {
+		if (!outOfLine.contains(name))
+			return null;
+		return helpers.computeIfAbsent(name, this::findHelper);
+	}
+
+	private MethodInfo findHelper(String name) {
+		val fragment = get(name).getCodeFragment();
+		if (fragment == null)
+			throw new MixinError("Couldn't get code of out of line injectable " + name + " in " + mixin.getName());
+		val calls = fragment.findFragments(CodeFragment.MethodCall.class);
+		if (calls.size() != 1)
+			throw new MixinError("Out of line injectable " + name + " in " + mixin.getName() + " must only call its helper, but makes " + calls.size() + " calls");
+
+		val helperName = ((CodeFragment.HasName) calls.get(0)).getName();
+		val candidates = mixin.getMethods().filter(it -> it.getName().equals(helperName)).collect(Collectors.toList());
+		if (candidates.size() != 1)
+			throw new MixinError("Helper " + helperName + " of out of line injectable " + name + " must be declared once in " + mixin.getName() + ", found " + candidates.size());
+		val helper = candidates.get(0);
+		if (!helper.getAccessFlags().has(AccessFlags.ACC_STATIC))
+			throw new MixinError("Helper " + helperName + " of out of line injectable " + name + " in " + mixin.getName() + " must be static");
+		return helper;
+	}
+
+	/**
+	 * @return all matchers with the given name, or an empty list if the name is empty
+	 */
+	@NonNull
+	List<FragmentMatcher> getMatchers(String name) {
+		if (name.isEmpty())
+			return Collections.emptyList();
+		val forName = matchers.get(name);
+		if (forName == null)
+			throw new MixinError("Couldn't find matcher with name " + name + " in " + mixin.getName());
+		return forName;
+	}
+}
@@ -1,56 +1,238 @@
 package dev.minco.mixin.internal;
 
+import java.util.*;
+import java.util.function.Supplier;
+
 import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
 import lombok.val;
 
+import dev.minco.javatransformer.api.AccessFlags;
+import dev.minco.javatransformer.api.ClassInfo;
 import dev.minco.javatransformer.api.MethodInfo;
 import dev.minco.javatransformer.api.code.CodeFragment;
 import dev.minco.mixin.Inject;
+import dev.minco.mixin.Position;
+import dev.minco.mixin.Type;
 
 class Injector {
-	static void inject(@NonNull MethodInfo target, @NonNull MethodInfo injectable, Inject inject, boolean failOnError) {
-		val targetFragment = target.getCodeFragment();
-		val injectableFragment = injectable.getCodeFragment();
-
-		if (targetFragment == null || injectableFragment == null) {
-			val message = "Null fragments for:" +
-				"\n\ttarget =" + target +
-				"\n\ttargetFragment =" + targetFragment +
-				"\n\tinjectable = " + injectable +
-				"\n\tinjectable = " + injectableFragment;
-			if (failOnError) {
-				throw new MixinError(message);
+	private static boolean matches(CodeFragment fragment, String arg) {
+		if ("".equals(arg))
+			return true;
+		// fragments without a name never match a named injection point
+		return fragment instanceof CodeFragment.HasName && ((CodeFragment.HasName) fragment).getName().equals(arg);
+	}
+
+	private static void report(String message, Throwable t, boolean failOnError) {
+		if (failOnError) {
+			throw t == null ? new MixinError(message) : new MixinError(message, t);
+		}
+		System.err.println(message);
+		if (t != null)
+			t.printStackTrace();
+	}
+
+	/**
+	 * Collects injections into one target class and applies them together, grouped by target method.
+	 * <p>
+	 * For each target method, the body is searched once per {@link Type} used by its injections, and every injection point is
+	 * found before any code is inserted. All injections therefore match against the original body, not against code inserted
+	 * by an earlier injection. At a single injection point, {@link Position#BEFORE} and {@link Position#AFTER} injections keep
+	 * their declaration order, and an {@link Position#OVERWRITE} is applied last.
+	 * <p>
+	 * If an injection uses {@link Inject#match()}, only fragments matched by a {@link FragmentMatcher} are considered before
+	 * {@link Inject#value()} and {@link Inject#index()} are checked.
+	 * <p>
+	 * The helper of an {@link dev.minco.mixin.Injectable#outOfLine()} injectable is added to the target once, however many
+	 * injections use it, so only the call to it is copied to each site. It is added after the injections have been inserted, and
+	 * only if at least one of them was, so a failed injection leaves no unused helper behind. By then every other handler has
+	 * run, so none of them can change its flags.
+	 */
+	@RequiredArgsConstructor
+	static class Batch {
+		private final String targetClass;
+		private final MixinApplicationListener listener;
+		private final List<Injection> injections = new ArrayList<>();
+		private final Set<MethodInfo> checkedHelpers = Collections.newSetFromMap(new IdentityHashMap<>());
+		private final Set<MethodInfo> usedHelpers = Collections.newSetFromMap(new LinkedHashMap<>());
+
+		/**
+		 * @param target resolves the target method when the batch is applied, after any other handler has replaced it
+		 * @param helper helper of an out of line injectable, added to the target class if the injection is inserted. May be null.
+		 */
+		void add(@NonNull Supplier<MethodInfo> target, @NonNull MethodInfo injectable, @NonNull List<FragmentMatcher> matchers, Inject inject, MethodInfo helper) {
+			injections.add(new Injection(target, injectable, matchers, inject, helper));
+		}
+
+		/**
+		 * Checks that the helper of an out of line injectable can be added to the target, if no earlier injection has checked it
+		 */
+		void checkHelper(@NonNull ClassInfo target, @NonNull MethodInfo helper) {
+			if (checkedHelpers.add(helper) && target.get(helper) != null)
+				throw new MixinError("Out of line helper " + helper + " from " + helper.getClassInfo().getName() + " clashes with an existing method in " + targetClass);
+		}
+
+		void apply(@NonNull ClassInfo target, boolean failOnError) {
+			for (List<Injection> forTarget : groupByTarget(null))
+				apply(forTarget, failOnError);
+
+			for (MethodInfo helper : usedHelpers) {
+				target.add(helper);
+				target.get(helper).accessFlags(it -> it.with(AccessFlags.ACC_SYNTHETIC));
+			}
+			usedHelpers.clear();
+		}
+
+		/**
+		 * Finds the sites of every injection without inserting any code. Only the code of target methods and injectables is inspected.
+		 *
+		 * @param problems receives errors which {@link #apply(boolean)} would have thrown
+		 * @return the number of sites matched by each injection, in the order they were added
+		 */
+		List<ValidationReport.Injection> validate(List<ValidationReport.Problem> problems) {
+			val result = new ArrayList<ValidationReport.Injection>();
+			for (List<Injection> forTarget : groupByTarget(problems)) {
+				try {
+					checkOverwrites(findInserts(forTarget, true));
+				} catch (RuntimeException e) {
+					problems.add(new ValidationReport.Problem(targetClass, forTarget.get(0).target.toString(), String.valueOf(e.getMessage())));
+				}
+				for (Injection injection : forTarget)
+					result.add(new ValidationReport.Injection(targetClass, injection.target.toString(), injection.injectable.getClassInfo().getName(),
+						injection.injectable.getName(), injection.inject, injection.sites));
+			}
+			return result;
+		}
+
+		/**
+		 * @param problems receives injections whose target method can't be found, which are skipped. If null, the error is thrown.
+		 */
+		private Collection<List<Injection>> groupByTarget(List<ValidationReport.Problem> problems) {
+			// MethodInfo instances are views, so group by signature rather than identity
+			val byTarget = new LinkedHashMap<String, List<Injection>>();
+			for (Injection injection : injections) {
+				try {
+					injection.target = injection.targetSupplier.get();
+				} catch (RuntimeException e) {
+					if (problems == null)
+						throw e;
+					problems.add(new ValidationReport.Problem(targetClass, String.valueOf(injection.inject), String.valueOf(e.getMessage())));
+					continue;
+				}
+				byTarget.computeIfAbsent(injection.target.toString(), k -> new ArrayList<>()).add(injection);
 			}
-			System.err.println(message);
-			return;
+			injections.clear();
+			return byTarget.values();
 		}
 
-		val fragments = targetFragment.findFragments(inject.type().getFragmentClass());
+		/**
+		 * Finds the injection points of injections into one target method, recording how many each matched
+		 */
+		private List<Insert> findInserts(List<Injection> injections, boolean failOnError) {
+			val target = injections.get(0).target;
+			val targetFragment = target.getCodeFragment();
+			val injectableFragments = new IdentityHashMap<MethodInfo, CodeFragment>();
+			val sitesByType = new EnumMap<Type, List<? extends CodeFragment>>(Type.class);
+			val tokensByType = new EnumMap<Type, String[][]>(Type.class);
+			val inserts = new ArrayList<Insert>();
+
+			for (Injection injection : injections) {
+				val injectableFragment = injectableFragments.computeIfAbsent(injection.injectable, MethodInfo::getCodeFragment);
+				if (targetFragment == null || injectableFragment == null) {
+					val message = "Null fragments for:" +
+						"\n\ttarget =" + target +
+						"\n\ttargetFragment =" + targetFragment +
+						"\n\tinjectable = " + injection.injectable +
+						"\n\tinjectable = " + injectableFragment;
+					report(message, null, failOnError);
+					continue;
+				}
+
+				val type = injection.inject.type();
+				List<? extends CodeFragment> fragments = sitesByType.computeIfAbsent(type, it -> targetFragment.findFragments(it.getFragmentClass()));
+				if (!injection.matchers.isEmpty())
+					fragments = FragmentMatcher.findSites(fragments, injection.matchers, type, tokensByType.computeIfAbsent(type, it -> new String[2][]));
 
-		val arg = inject.value();
-		val index = inject.index();
-		int i = 0;
-		for (CodeFragment fragment : fragments) {
-			if (!"".equals(arg)) {
-				if (fragment instanceof CodeFragment.HasName)
-					if (!((CodeFragment.HasName) fragment).getName().equals(arg))
+				val arg = injection.inject.value();
+				val index = injection.inject.index();
+				int i = 0;
+				int sites = 0;
+				for (CodeFragment fragment : fragments) {
+					if (!matches(fragment, arg))
 						continue;
-					else
-						throw new UnsupportedOperationException("Unknown fragment class to match Inject.value into " + fragment.getClass());
+					// This must be the last check
+					if (index == -1 || index == i) {
+						inserts.add(new Insert(fragment, injectableFragment, injection));
+						sites++;
+					}
+					i++;
+				}
+				injection.sites = sites;
+				if (listener != MixinApplicationListener.NONE)
+					listener.injectionSitesFound(targetClass, target, injection.inject, sites);
 			}
-			// This must be the last check
-			if (index == -1 || index == i)
+			return inserts;
+		}
+
+		private void apply(List<Injection> injections, boolean failOnError) {
+			val target = injections.get(0).target;
+			val inserts = findInserts(injections, failOnError);
+			checkOverwrites(inserts);
+
+			// BEFORE inserts at one site stack in order, AFTER inserts stack in reverse, so apply AFTER in reverse to keep declaration order
+			val ordered = new ArrayList<Insert>();
+			for (Insert insert : inserts)
+				if (insert.getPosition() == Position.BEFORE)
+					ordered.add(insert);
+			for (int i = inserts.size() - 1; i >= 0; i--)
+				if (inserts.get(i).getPosition() == Position.AFTER)
+					ordered.add(inserts.get(i));
+			for (Insert insert : inserts)
+				if (insert.getPosition() == Position.OVERWRITE)
+					ordered.add(insert);
+
+			for (Insert insert : ordered) {
 				try {
-					fragment.insert(injectableFragment, inject.position().getPosition());
+					insert.site.insert(insert.injectable, insert.getPosition().getPosition());
+					if (insert.injection.helper != null)
+						usedHelpers.add(insert.injection.helper);
 				} catch (Throwable t) {
-					val message = "Failed to inject " + injectable + " into " + fragment + " in " + target + " with " + inject;
-					if (failOnError) {
-						throw new MixinError(message, t);
-					}
-					System.err.println(message);
-					t.printStackTrace();
+					report("Failed to inject " + insert.injection.injectable + " into " + insert.site + " in " + target + " with " + insert.injection.inject, t, failOnError);
 				}
-			i++;
+			}
+		}
+
+		private static void checkOverwrites(List<Insert> inserts) {
+			val overwritten = new IdentityHashMap<CodeFragment, Insert>();
+			for (Insert insert : inserts) {
+				if (insert.getPosition() != Position.OVERWRITE)
+					continue;
+				val existing = overwritten.put(insert.site, insert);
+				if (existing != null)
+					throw new MixinError("Multiple injections overwrite " + insert.site + " in " + insert.injection.target + ": " + existing.injection.inject + " and " + insert.injection.inject);
+			}
+		}
+	}
+
+	@RequiredArgsConstructor
+	private static class Injection {
+		final Supplier<MethodInfo> targetSupplier;
+		final MethodInfo injectable;
+		final List<FragmentMatcher> matchers;
+		final Inject inject;
+		final MethodInfo helper;
+		MethodInfo target;
+		int sites;
+	}
+
+	@RequiredArgsConstructor
+	private static class Insert {
+		final CodeFragment site;
+		final CodeFragment injectable;
+		final Injection injection;
+
+		Position getPosition() {
+			return injection.inject.position();
 		}
 	}
 }
@@ -0,0 +1,337 @@
+package dev.minco.mixin.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.val;
+
+import dev.minco.javatransformer.api.ClassPath;
+
+/**
+ * Transforms a jar one entry at a time, parsing only the classes targeted by a mixin.
+ * <p>
+ * Untargeted entries are copied as raw compressed bytes, so the time taken depends on the number of targeted classes rather
+ * than on the size of the jar. If a {@link ClassOutputCache} is given, targeted classes are served from it when possible.
+ * Cache misses are transformed as a single batch. Zip64 jars are read and rewritten with {@link ZipFile} instead.
+ * <p>
+ * Output is reproducible: entries are written in input order, copied entries keep their original timestamps, and transformed
+ * entries keep the timestamp of the class they replace. The zip64 fallback does the same, using {@link #FALLBACK_TIME} for
+ * entries without a timestamp.
+ */
+@RequiredArgsConstructor
+class JarTransformer {
+	/**
+	 * 1980-02-01 00:00 in the local time zone, the same constant gradle uses for reproducible archives.
+	 * Stored as that local date and time in every time zone.
+	 */
+	private static final long FALLBACK_TIME = new GregorianCalendar(1980, Calendar.FEBRUARY, 1, 0, 0, 0).getTimeInMillis();
+	/**
+	 * java-transformer only transforms files, so {@link #transformEntries} writes each batch to disk. The directories it uses are
+	 * created once per thread and emptied after each batch, rather than created and deleted for every class an agent loads.
+	 */
+	private static final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+	@NonNull
+	private final MixinApplicator applicator;
+	private final ClassOutputCache cache;
+
+	void transform(Path input, Path output) {
+		transform(input, Collections.singletonMap(this, output));
+	}
+
+	/**
+	 * Transforms one jar with several transformers, writing one output for each. The jar is opened and each targeted entry is
+	 * inflated once, however many of the transformers target it. Zip64 jars are read once per transformer.
+	 */
+	static void transform(Path input, Map<JarTransformer, Path> outputs) {
+		try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ)) {
+			val zip = RawZip.open(in);
+			if (zip == null) {
+				outputs.forEach((transformer, output) -> transformer.transformWithZipFile(input, output));
+				return;
+			}
+
+			val read = new HashMap<String, byte[]>();
+			for (RawZip.Entry entry : zip.getEntries()) {
+				if (entry.isDirectory())
+					continue;
+				for (JarTransformer transformer : outputs.keySet()) {
+					if (getTarget(transformer.applicator.getApplicationPlan(), entry.getName()) != null) {
+						read.put(entry.getName(), zip.read(entry));
+						break;
+					}
+				}
+			}
+
+			for (Map.Entry<JarTransformer, Path> output : outputs.entrySet())
+				output.getKey().write(input, zip, read, output.getValue());
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * @param read inflated data of at least every entry targeted by this transformer
+	 */
+	private void write(Path input, RawZip zip, Map<String, byte[]> read, Path output) throws IOException {
+		val plan = applicator.getApplicationPlan();
+		val applied = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+		val targeted = new LinkedHashMap<String, byte[]>();
+		for (RawZip.Entry entry : zip.getEntries())
+			if (!entry.isDirectory() && getTarget(plan, entry.getName()) != null)
+				targeted.put(entry.getName(), read.get(entry.getName()));
+
+		val transformed = transformTargets(input, targeted, applied);
+		applicator.checkApplied(applied);
+
+		if (output.getParent() != null)
+			Files.createDirectories(output.getParent());
+		try (FileChannel out = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+			 RawZip.Writer writer = zip.newWriter(out)) {
+			for (RawZip.Entry entry : zip.getEntries()) {
+				val data = transformed.get(entry.getName());
+				if (data == null)
+					writer.copy(zip, entry);
+				else
+					writer.write(entry, data);
+			}
+		}
+	}
+
+	void transformWithZipFile(Path input, Path output) {
+		val applied = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+		val plan = applicator.getApplicationPlan();
+		val entries = new LinkedHashMap<String, byte[]>();
+		val targeted = new LinkedHashMap<String, byte[]>();
+		val times = new HashMap<String, Long>();
+
+		try (ZipFile zip = new ZipFile(input.toFile())) {
+			val iterator = zip.entries();
+			while (iterator.hasMoreElements()) {
+				val entry = iterator.nextElement();
+				if (entry.isDirectory())
+					continue;
+
+				byte[] data;
+				try (InputStream in = zip.getInputStream(entry)) {
+					data = ContentHash.readFully(in);
+				}
+				val name = entry.getName();
+				entries.put(name, data);
+				times.put(name, entry.getTime());
+				if (getTarget(plan, name) != null)
+					targeted.put(name, data);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		entries.putAll(transformTargets(input, targeted, applied));
+		applicator.checkApplied(applied);
+
+		try {
+			if (output.getParent() != null)
+				Files.createDirectories(output.getParent());
+			try (ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(output))) {
+				for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+					val zipEntry = new ZipEntry(entry.getKey());
+					val time = times.get(entry.getKey());
+					zipEntry.setTime(time == -1 ? FALLBACK_TIME : time);
+					zos.putNextEntry(zipEntry);
+					zos.write(entry.getValue());
+					zos.closeEntry();
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Transforms targeted entries, using the cache where possible
+	 *
+	 * @return the transformed entries
+	 */
+	private Map<String, byte[]> transformTargets(Path input, Map<String, byte[]> targeted, Set<String> applied) {
+		val plan = applicator.getApplicationPlan();
+		val listener = applicator.getListener();
+		val result = new HashMap<String, byte[]>();
+		val misses = new LinkedHashMap<String, byte[]>();
+		val keys = new HashMap<String, String>();
+
+		targeted.forEach((name, data) -> {
+			val target = getTarget(plan, name);
+			if (cache == null) {
+				misses.put(name, data);
+				return;
+			}
+
+			val key = ClassOutputCache.key(data, applicator.getTargetFingerprint(target));
+			val cached = cache.get(key);
+			if (cached != null) {
+				applied.add(target);
+				result.put(name, cached);
+				listener.classWritten(target, data.length, cached.length, true);
+			} else {
+				misses.put(name, data);
+				keys.put(name, key);
+			}
+		});
+
+		if (!misses.isEmpty()) {
+			transformEntries(applicator, input, misses, applied).forEach((name, data) -> {
+				result.put(name, data);
+				if (cache != null)
+					cache.put(keys.get(name), data);
+				listener.classWritten(getTarget(plan, name), misses.get(name).length, data.length, false);
+			});
+		}
+		return result;
+	}
+
+	/**
+	 * @return the name of the targeted class stored in the given jar entry, or null if it is not targeted
+	 */
+	static String getTarget(ApplicationPlan plan, String entryName) {
+		String className;
+		if (entryName.endsWith(".class"))
+			className = entryName.substring(0, entryName.length() - ".class".length());
+		else if (entryName.endsWith(".java"))
+			className = entryName.substring(0, entryName.length() - ".java".length());
+		else
+			return null;
+
+		className = className.replace('/', '.');
+		if (plan.isTarget(className))
+			return className;
+		className = className.replace('$', '.');
+		return plan.isTarget(className) ? className : null;
+	}
+
+	/**
+	 * Transforms the given entries, keyed by their path in a jar, as one batch
+	 *
+	 * @param source jar or directory the entries were read from, added to the class path so other classes in it can be resolved. May be null.
+	 * @return the transformed entries
+	 */
+	static Map<String, byte[]> transformEntries(MixinApplicator applicator, Path source, Map<String, byte[]> entries, Set<String> applied) {
+		return transformEntries(applicator, source == null ? null : applicator.createClassPath(source), entries, applied);
+	}
+
+	/**
+	 * @param classPath class path to resolve referenced classes with, or null to use {@link MixinApplicator#getClassPath()}
+	 * @see #transformEntries(MixinApplicator, Path, Map, Set)
+	 */
+	static Map<String, byte[]> transformEntries(MixinApplicator applicator, ClassPath classPath, Map<String, byte[]> entries, Set<String> applied) {
+		// a class loaded while transforming may be transformed on the same thread, so nested batches get their own directories
+		val threadScratch = scratch.get();
+		val current = threadScratch.inUse ? new Scratch() : threadScratch;
+		val in = current.in();
+		val out = current.out();
+		current.inUse = true;
+		try {
+			val plan = applicator.getApplicationPlan();
+			val lazyBodies = new HashMap<String, LazyMethodBodies>();
+			for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+				byte[] data = entry.getValue();
+				val target = getTarget(plan, entry.getKey());
+				if (applicator.isLazyMethodBodies() && target != null && entry.getKey().endsWith(".class")) {
+					val bodies = LazyMethodBodies.strip(data, plan.getMethodNames(target));
+					lazyBodies.put(entry.getKey(), bodies);
+					data = bodies.getStubbed();
+				}
+
+				val file = in.resolve(entry.getKey());
+				Files.createDirectories(file.getParent());
+				Files.write(file, data);
+			}
+
+			val transformer = applicator.createTransformer(applied, it -> {});
+			if (classPath != null)
+				transformer.setClassPath(classPath);
+			transformer.transform(in, out);
+
+			val result = new LinkedHashMap<String, byte[]>();
+			for (String name : entries.keySet()) {
+				val file = out.resolve(name);
+				if (!Files.isRegularFile(file)) {
+					result.put(name, entries.get(name));
+					continue;
+				}
+				val bodies = lazyBodies.get(name);
+				val transformed = Files.readAllBytes(file);
+				result.put(name, bodies == null ? transformed : bodies.restore(getTarget(plan, name), transformed));
+			}
+			return result;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			if (current == threadScratch) {
+				deleteContents(in);
+				deleteContents(out);
+				current.inUse = false;
+			} else {
+				deleteRecursively(in);
+				deleteRecursively(out);
+			}
+		}
+	}
+
+	private static void deleteContents(Path directory) {
+		try (Stream<Path> stream = Files.list(directory)) {
+			for (Path child : stream.collect(Collectors.toList()))
+				deleteRecursively(child);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	static void deleteRecursively(Path path) {
+		if (path == null || !Files.exists(path))
+			return;
+		try (Stream<Path> stream = Files.walk(path)) {
+			for (Path file : stream.sorted(Comparator.reverseOrder()).collect(Collectors.toList()))
+				Files.delete(file);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static final class Scratch {
+		private Path in;
+		private Path out;
+		boolean inUse;
+
+		Path in() {
+			return in = create(in, "mixin-in");
+		}
+
+		Path out() {
+			return out = create(out, "mixin-out");
+		}
+
+		private static Path create(Path existing, String prefix) {
+			if (existing != null && Files.isDirectory(existing))
+				return existing;
+			try {
+				val directory = Files.createTempDirectory(prefix);
+				// only deleted if it is empty, which it is between batches
+				directory.toFile().deleteOnExit();
+				return directory;
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+}
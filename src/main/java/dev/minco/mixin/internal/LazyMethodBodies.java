@@ -0,0 +1,137 @@
+package dev.minco.mixin.internal;
+
+import java.util.*;
+
+import lombok.val;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodNode;
+
+/**
+ * Keeps the bodies of methods no handler touches out of {@link dev.minco.javatransformer.api.JavaTransformer}.
+ * <p>
+ * Before a target class is transformed, the body of every method which no mixin member names is replaced with a two instruction
+ * stub, so java-transformer parses, analyses and writes only the code of methods mixins change. After the transform, each stub
+ * is replaced with the original body, copied verbatim with its frames, try-catch blocks and debug information. Constructors and
+ * static initialisers are never stubbed, as field initialisers may be added to them.
+ * <p>
+ * A handler which changes a stubbed body would silently lose its change, so that is reported as a {@link MixinError}.
+ */
+final class LazyMethodBodies {
+	private static final int[] STUB = {Opcodes.ACONST_NULL, Opcodes.ATHROW};
+	private final Map<String, MethodNode> bodies;
+	private final byte[] stubbed;
+
+	private LazyMethodBodies(Map<String, MethodNode> bodies, byte[] stubbed) {
+		this.bodies = bodies;
+		this.stubbed = stubbed;
+	}
+
+	/**
+	 * @param touched names of methods which handlers may change
+	 */
+	static LazyMethodBodies strip(byte[] original, Set<String> touched) {
+		val node = new ClassNode();
+		new ClassReader(original).accept(node, 0);
+
+		val bodies = new HashMap<String, MethodNode>();
+		for (int i = 0; i < node.methods.size(); i++) {
+			val method = node.methods.get(i);
+			if (method.instructions.size() == 0 || touched.contains(method.name) || method.name.equals("<init>") || method.name.equals("<clinit>"))
+				continue;
+
+			bodies.put(method.name + method.desc, method);
+			node.methods.set(i, stub(method));
+		}
+
+		if (bodies.isEmpty())
+			return new LazyMethodBodies(bodies, original);
+
+		val writer = new ClassWriter(0);
+		node.accept(writer);
+		return new LazyMethodBodies(bodies, writer.toByteArray());
+	}
+
+	private static MethodNode stub(MethodNode method) {
+		val stub = new MethodNode(Opcodes.ASM7, method.access, method.name, method.desc, method.signature, method.exceptions.toArray(new String[0]));
+		stub.parameters = method.parameters;
+		stub.visibleAnnotations = method.visibleAnnotations;
+		stub.invisibleAnnotations = method.invisibleAnnotations;
+		stub.visibleTypeAnnotations = method.visibleTypeAnnotations;
+		stub.invisibleTypeAnnotations = method.invisibleTypeAnnotations;
+		stub.visibleAnnotableParameterCount = method.visibleAnnotableParameterCount;
+		stub.visibleParameterAnnotations = method.visibleParameterAnnotations;
+		stub.invisibleAnnotableParameterCount = method.invisibleAnnotableParameterCount;
+		stub.invisibleParameterAnnotations = method.invisibleParameterAnnotations;
+		stub.attrs = method.attrs;
+
+		int locals = Type.getArgumentsAndReturnSizes(method.desc) >> 2;
+		if ((method.access & Opcodes.ACC_STATIC) != 0)
+			locals--;
+		stub.visitCode();
+		for (int opcode : STUB)
+			stub.visitInsn(opcode);
+		stub.visitMaxs(1, locals);
+		stub.visitEnd();
+		return stub;
+	}
+
+	/**
+	 * @return the class with untouched method bodies replaced by stubs, or the original bytes if there were none
+	 */
+	byte[] getStubbed() {
+		return stubbed;
+	}
+
+	int getStubbedCount() {
+		return bodies.size();
+	}
+
+	/**
+	 * Puts the original bodies back into the transformed class. The header of each method, including any access changes made by
+	 * handlers, is kept from the transformed class.
+	 */
+	byte[] restore(String target, byte[] transformed) {
+		if (bodies.isEmpty())
+			return transformed;
+
+		val node = new ClassNode();
+		new ClassReader(transformed).accept(node, 0);
+		for (MethodNode method : node.methods) {
+			val original = bodies.get(method.name + method.desc);
+			if (original == null)
+				continue;
+			if (!isStub(method))
+				throw new MixinError("A handler changed the body of " + target + '.' + method.name + method.desc + ", which was not parsed as no mixin member names it. Disable lazyMethodBodies to transform it.");
+
+			method.instructions = original.instructions;
+			method.tryCatchBlocks = original.tryCatchBlocks;
+			method.localVariables = original.localVariables;
+			method.visibleLocalVariableAnnotations = original.visibleLocalVariableAnnotations;
+			method.invisibleLocalVariableAnnotations = original.invisibleLocalVariableAnnotations;
+			method.maxStack = original.maxStack;
+			method.maxLocals = original.maxLocals;
+		}
+
+		val writer = new ClassWriter(0);
+		node.accept(writer);
+		return writer.toByteArray();
+	}
+
+	private static boolean isStub(MethodNode method) {
+		int i = 0;
+		for (AbstractInsnNode insn = method.instructions.getFirst(); insn != null; insn = insn.getNext()) {
+			// labels, line numbers and frames have no opcode
+			if (insn.getOpcode() < 0)
+				continue;
+			if (i >= STUB.length || insn.getOpcode() != STUB[i++])
+				return false;
+		}
+		return i == STUB.length;
+	}
+}
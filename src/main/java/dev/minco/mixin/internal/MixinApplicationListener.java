@@ -0,0 +1,54 @@
+package dev.minco.mixin.internal;
+
+import java.nio.file.Path;
+
+import dev.minco.javatransformer.api.ClassMember;
+import dev.minco.javatransformer.api.MethodInfo;
+import dev.minco.mixin.Inject;
+
+/**
+ * Receives timings and counts from a {@link MixinApplicator}.
+ * <p>
+ * All methods do nothing by default. Calls may come from several threads at once when {@link MixinApplicator#isParallelDiscovery()}
+ * is set, or when targets are transformed in parallel, so implementations must be thread-safe.
+ *
+ * @see MixinApplicator#setListener(MixinApplicationListener)
+ */
+public interface MixinApplicationListener {
+	/**
+	 * Default listener. When set, {@link MixinApplicator} skips taking timings.
+	 */
+	MixinApplicationListener NONE = new MixinApplicationListener() {};
+
+	/**
+	 * Called after the mixins in one source have been found
+	 */
+	default void sourceDiscovered(Path source, int mixins, long nanos) {}
+
+	/**
+	 * Called after all sources have been discovered and merged into a plan
+	 */
+	default void planBuilt(ApplicationPlan plan, long nanos) {}
+
+	/**
+	 * Called after a single handler has been applied to a target class
+	 */
+	default void handlerApplied(String target, Class<? extends java.lang.annotation.Annotation> annotationType, ClassMember annotated, long nanos) {}
+
+	/**
+	 * Called once for each {@link Inject} after its injection points in a target method have been found
+	 */
+	default void injectionSitesFound(String target, MethodInfo targetMethod, Inject inject, int sites) {}
+
+	/**
+	 * Called after all handlers for a target class have been applied
+	 */
+	default void targetTransformed(String target, long nanos) {}
+
+	/**
+	 * Called for each targeted class written by {@link MixinApplicator#transform(java.nio.file.Path, java.nio.file.Path)} when transforming a jar
+	 *
+	 * @param cached whether the output was read from {@link MixinApplicator#getCacheDirectory()} rather than transformed
+	 */
+	default void classWritten(String target, long bytesIn, long bytesOut, boolean cached) {}
+}
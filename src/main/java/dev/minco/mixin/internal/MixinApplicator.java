@@ -2,6 +2,7 @@ package dev.minco.mixin.internal;
 
 import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.function.*;
 import java.util.stream.*;
 
@@ -17,7 +18,14 @@ import me.nallar.whocalled.WhoCalled;
 @SuppressWarnings("CodeBlock2Expr")
 @Data
 public class MixinApplicator {
-	private static final Map<String, List<IndexedAnnotationApplier<? extends ClassMember>>> consumerMap = new HashMap<>();
+	/**
+	 * Immutable dispatch table from annotation class name to handlers, built once from the built in handlers and any {@link MixinHandlerProvider}s
+	 */
+	private static final Map<String, List<IndexedAnnotationApplier<?, ?>>> consumerMap;
+	/**
+	 * {@link MixinHandlerProvider}s found by {@link ServiceLoader}, whose handlers are in {@link #consumerMap}
+	 */
+	private static final List<MixinHandlerProvider> handlerProviders = new ArrayList<>();
 	private final Map<Path, List<String>> sources = new HashMap<>();
 	private static final ClassPath mixinClassPath = ClassPaths.of(ClassPaths.SystemClassPath.SYSTEM_CLASS_PATH, JavaTransformer.pathFromClass(Mixin.class));
 	/**
@@ -28,11 +36,13 @@ public class MixinApplicator {
 	private boolean failOnInjectionError = true;
 
 	static {
-		addAnnotationHandler(ClassInfo.class, Mixin.class, Integer.MIN_VALUE, (applicator, annotation, member, target) -> {
+		val registry = new HandlerRegistry();
+
+		registry.addHandler(ClassInfo.class, Mixin.class, Integer.MIN_VALUE, (applicator, annotation, member, target) -> {
 			applicator.logInfo("Handling class " + member.getName() + " with annotation " + annotation);
 		});
 
-		addAnnotationHandler(ClassInfo.class, Mixin.class, 1, (applicator, annotation, member, target) -> {
+		registry.addHandler(ClassInfo.class, Mixin.class, 1, (applicator, annotation, member, target) -> {
 			if (applicator.applicationType == ApplicationType.FINAL_PATCH)
 				return;
 
@@ -48,7 +58,7 @@ public class MixinApplicator {
 			target.getMembers().forEach(it -> it.accessFlags(f -> f.makeAccessible(makePublic).without(AccessFlags.ACC_FINAL | AccessFlags.ACC_SYNTHETIC)));
 		});
 
-		addAnnotationHandler(ClassMember.class, Flags.class, 2, ((applicator, annotation, annotatedMember, mixinTarget) -> {
+		registry.addHandler(ClassMember.class, Flags.class, 2, ((applicator, annotation, annotatedMember, mixinTarget) -> {
 			val flags = JVMUtil.accessStringToInt(annotation.flags());
 			val member = annotatedMember instanceof ClassInfo ? mixinTarget : mixinTarget.get(annotatedMember);
 			switch (annotation.mode()) {
@@ -64,7 +74,7 @@ public class MixinApplicator {
 			}
 		}));
 
-		addAnnotationHandler(FieldInfo.class, Add.class, 2, (applicator, annotation, member, target) -> {
+		registry.addHandler(FieldInfo.class, Add.class, 2, (applicator, annotation, member, target) -> {
 			String name = member.getName();
 			if (!name.endsWith("_"))
 				throw new MixinError("Name of @Add-ed field must end with '_'");
@@ -75,11 +85,11 @@ public class MixinApplicator {
 			added.accessFlags(it -> it.makeAccessible(false));
 		});
 
-		addAnnotationHandler(MethodInfo.class, Add.class, 2, (applicator, annotation, member, target) -> {
+		registry.addHandler(MethodInfo.class, Add.class, 2, (applicator, annotation, member, target) -> {
 			target.add(member);
 		});
 
-		addAnnotationHandler(MethodInfo.class, Overwrite.class, (applicator, annotation, member, target) -> {
+		registry.addHandler(MethodInfo.class, Overwrite.class, (applicator, annotation, member, target) -> {
 			val existing = get(member, target);
 
 			if (applicator.applicationType == ApplicationType.PRE_PATCH)
@@ -89,40 +99,104 @@ public class MixinApplicator {
 			target.add(member);
 		});
 
-		addAnnotationHandler(MethodInfo.class, Synchronize.class, (applicator, annotation, member, target) -> {
+		registry.addHandler(MethodInfo.class, Synchronize.class, (applicator, annotation, member, target) -> {
 			target.get(member).accessFlags(it -> it.with(AccessFlags.ACC_SYNCHRONIZED));
 		});
 
-		addAnnotationHandler(MethodInfo.class, Inject.class, (applicator, annotation, member, target) -> {
-			val injectableName = annotation.injectable();
-			val injectableMethods = member.getClassInfo().getMethods().filter(it -> {
-				val injectables = it.getAnnotations(Injectable.class.getName());
-				if (injectables.isEmpty())
-					return false;
-				String thisInjectableName = (String) injectables.get(0).values.get("name");
-				if (thisInjectableName == null)
-					thisInjectableName = "";
-				return (it.getName().equals(injectableName) && thisInjectableName.equals("")) || it.getName().equals(thisInjectableName);
-			}).collect(Collectors.toList());
-
-			if (injectableMethods.size() != 1)
-				throw new MixinError("Couldn't find exactly 1 injectable with name " + injectableName + " in " + member.getClassInfo().getName());
-
-			Injector.inject(get(member, target), injectableMethods.get(0), annotation, applicator.failOnInjectionError);
+		registry.addHandler(MethodInfo.class, Inject.class, (applicator, annotation, member, target) -> {
+			applicator.addInjection(applicator.getInjectionBatch(target), member, target, annotation);
 		});
+
+		// @Inject is repeatable, so several on one method are compiled into one @Injects
+		registry.addHandler(MethodInfo.class, Injects.class, (applicator, annotation, member, target) -> {
+			val batch = applicator.getInjectionBatch(target);
+			for (Inject inject : annotation.value())
+				applicator.addInjection(batch, member, target, inject);
+		});
+
+		for (MixinHandlerProvider provider : ServiceLoader.load(MixinHandlerProvider.class, MixinApplicator.class.getClassLoader())) {
+			provider.addHandlers(registry);
+			handlerProviders.add(provider);
+		}
+
+		consumerMap = registry.build();
 	}
 
-	private final List<TargetedTransformer> transformers = new ArrayList<>();
+	private final List<Transformer.TargetedTransformer> transformers = new ArrayList<>();
 	private Consumer<String> log = System.out::println;
 	private boolean noMixinIsError = false;
 	private boolean notAppliedIsError = true;
+	/**
+	 * If set, each source added with {@link #addSource(Path)} is parsed on the common fork-join pool.
+	 * <p>
+	 * Discovered transformers are merged in source order, so output is the same as sequential discovery. Each source is parsed with
+	 * its own copy of the class path, so discovery is sequential if the class path was replaced with {@link #setClassPath(ClassPath)}.
+	 */
+	private boolean parallelDiscovery = false;
+	/**
+	 * If set, the classes found in each mixin source are cached in this directory, keyed by the source's content hash.
+	 * <p>
+	 * Discovery of an unchanged source only parses its mixin classes. Entries unused for {@link CacheCleanup#MAX_UNUSED_DAYS}
+	 * days are deleted when the directory is set.
+	 */
+	private Path cacheDirectory;
+	/**
+	 * If set, jar entries and single classes are transformed with the body of every method which no mixin member names replaced by
+	 * a stub, and the original bodies are copied back verbatim afterwards. See {@link LazyMethodBodies}.
+	 * <p>
+	 * Handlers added by a {@link MixinHandlerProvider} may then only change the code of methods a mixin member names. Source files,
+	 * and directories transformed with {@link #getMixinTransformer()}, are always parsed in full.
+	 */
+	private boolean lazyMethodBodies = false;
 	private ApplicationType applicationType = ApplicationType.FINAL_PATCH;
+	/**
+	 * Receives per-phase timings and counts. Timings are not taken while this is {@link MixinApplicationListener#NONE}.
+	 */
+	@NonNull
+	private MixinApplicationListener listener = MixinApplicationListener.NONE;
+	@Getter(AccessLevel.NONE)
+	@Setter(AccessLevel.NONE)
+	private ApplicationPlan applicationPlan;
+	/**
+	 * Injectables of each discovered mixin class. Keyed by identity as the same mixin may be discovered in more than one source.
+	 */
+	@Getter(AccessLevel.NONE)
+	private final Map<ClassInfo, InjectableIndex> injectableIndices = Collections.synchronizedMap(new IdentityHashMap<>());
+	/**
+	 * Injections collected for each target class currently being transformed, applied once all of its handlers have run
+	 */
+	@Getter(AccessLevel.NONE)
+	private final Map<ClassInfo, Injector.Batch> injectionBatches = Collections.synchronizedMap(new IdentityHashMap<>());
 	@Getter(AccessLevel.NONE)
 	@Setter(AccessLevel.NONE)
 	private JavaTransformer transformer;
+	/**
+	 * Mixins found in each source, kept so the next applicator can reuse them. Null unless {@link #reuseDiscoveries} was called.
+	 */
+	@Getter(AccessLevel.NONE)
+	@Setter(AccessLevel.NONE)
+	private Map<Path, SourceDiscovery> discoveries;
+	@Getter(AccessLevel.NONE)
+	@Setter(AccessLevel.NONE)
+	private MixinApplicator previous;
 	@Getter(AccessLevel.NONE)
 	@Setter(AccessLevel.NONE)
 	private boolean setLog;
+	/**
+	 * Paths added with {@link #addClassPath(Path)}, whose contents are part of {@link #getTargetFingerprint(String)}
+	 */
+	@Getter(AccessLevel.NONE)
+	@Setter(AccessLevel.NONE)
+	private final List<Path> classPathEntries = new ArrayList<>();
+	/**
+	 * Set once {@link #setClassPath(ClassPath)} replaced the default class path, which can't be copied for parallel discovery
+	 */
+	@Getter(AccessLevel.NONE)
+	@Setter(AccessLevel.NONE)
+	private boolean customClassPath;
+	@Getter(AccessLevel.NONE)
+	@Setter(AccessLevel.NONE)
+	private volatile String classPathFingerprint;
 
 	@NonNull
 	private static MethodInfo get(MethodInfo from, ClassInfo target) {
@@ -132,39 +206,6 @@ public class MixinApplicator {
 		return existing;
 	}
 
-	private static void addAnnotationHandler(IndexedAnnotationApplier<?> applier, String name) {
-		if (!name.contains("."))
-			name = "dev.minco.mixin." + name;
-		consumerMap.computeIfAbsent(name, k -> new ArrayList<>()).add(applier);
-	}
-
-	private static void addAnnotationHandler(AnnotationApplier<?> applier, int index, String... names) {
-		for (String name : names)
-			addAnnotationHandler(new IndexedAnnotationApplier<>(index, applier), name);
-	}
-
-	@SuppressWarnings("unchecked")
-	private static <T extends ClassMember> void addAnnotationHandler(Class<T> clazz, int index, AnnotationApplier<T> applier, String... names) {
-		addAnnotationHandler((applicator, annotation, member, target) -> {
-			if (clazz.isAssignableFrom(member.getClass()))
-				applier.apply(applicator, annotation, (T) member, target);
-		}, index, names);
-	}
-
-	private static <T extends ClassMember> void addAnnotationHandler(Class<T> clazz, AnnotationApplier<T> applier, String... names) {
-		addAnnotationHandler(clazz, 0, applier, names);
-	}
-
-	private static <T extends ClassMember, A extends java.lang.annotation.Annotation> void addAnnotationHandler(Class<T> clazz, Class<A> annotationClass, int index, SpecificAnnotationApplier<T, A> applier) {
-		addAnnotationHandler(clazz, index, (applicator, annotation, member, target) -> {
-			applier.apply(applicator, annotation.toInstance(annotationClass), member, target);
-		}, annotationClass.getName());
-	}
-
-	private static <T extends ClassMember, A extends java.lang.annotation.Annotation> void addAnnotationHandler(Class<T> clazz, Class<A> annotationClass, SpecificAnnotationApplier<T, A> applier) {
-		addAnnotationHandler(clazz, annotationClass, 0, applier);
-	}
-
 	private static boolean packageNameMatches(String className, List<String> packages) {
 		for (String s : packages) {
 			if (s == null || className.startsWith(s)) {
@@ -182,25 +223,65 @@ public class MixinApplicator {
 		}
 	}
 
+	private Injector.Batch getInjectionBatch(ClassInfo target) {
+		val batch = injectionBatches.get(target);
+		if (batch == null)
+			throw new MixinError("@Inject can only be applied while transforming " + target.getName());
+		return batch;
+	}
+
+	private InjectableIndex getInjectableIndex(ClassInfo mixin) {
+		return injectableIndices.computeIfAbsent(mixin, InjectableIndex::of);
+	}
+
+	/**
+	 * Adds an injection to the batch of its target. The helper of an out of line injectable is checked now, and added to the
+	 * target when the batch is applied.
+	 */
+	private void addInjection(Injector.Batch batch, MethodInfo member, ClassInfo target, Inject inject) {
+		val index = getInjectableIndex(member.getClassInfo());
+		val helper = index.getHelper(inject.injectable());
+		if (helper != null)
+			batch.checkHelper(target, helper);
+		batch.add(() -> get(member, target), index.get(inject.injectable()), index.getMatchers(inject.match()), inject, helper);
+	}
+
 	private void logInfo(String s) {
 		log.accept(s);
 	}
 
-	private Stream<SortableConsumer<ClassInfo>> handleAnnotation(ClassMember annotated) {
-		return annotated.getAnnotations().stream().flatMap(annotation -> {
-			@SuppressWarnings("unchecked")
-			List<IndexedAnnotationApplier<ClassMember>> appliers = (List<IndexedAnnotationApplier<ClassMember>>) (List) consumerMap.get(annotation.type.getClassName());
-			if (appliers == null)
-				return null;
+	private long startTiming() {
+		return listener == MixinApplicationListener.NONE ? 0 : System.nanoTime();
+	}
 
-			return appliers.stream().map(applier -> SortableConsumer.of(applier.sortIndex, (Consumer<ClassInfo>) (target) -> {
-				try {
-					applier.apply(this, annotation, annotated, target);
-				} catch (Exception e) {
-					throw new MixinError("Failed to apply handler for annotation '" + annotation.type.getClassName() + "' on '" + ignoreException(annotated::toString, "annotated") + "' in '" + annotated.getClassInfo().getName() + "' to '" + target.getName() + "'", e);
+	private static void handleAnnotations(ClassMember annotated, List<Applier> appliers) {
+		for (Annotation annotation : annotated.getAnnotations()) {
+			val handlers = consumerMap.get(annotation.type.getClassName());
+			if (handlers == null)
+				continue;
+
+			// materialise each annotation instance once, shared by every handler for it
+			Class<?> instanceType = null;
+			java.lang.annotation.Annotation instance = null;
+			for (IndexedAnnotationApplier<?, ?> handler : handlers) {
+				if (!handler.memberType.isInstance(annotated))
+					continue;
+
+				if (handler.annotationType != instanceType) {
+					instance = toInstance(annotation, handler.annotationType, annotated);
+					instanceType = handler.annotationType;
 				}
-			}));
-		}).filter(Objects::nonNull);
+				appliers.add(new Applier(handler, annotation, instance, annotated));
+			}
+		}
+	}
+
+	private static java.lang.annotation.Annotation toInstance(Annotation annotation, Class<? extends java.lang.annotation.Annotation> type, ClassMember annotated) {
+		try {
+			return annotation.toInstance(type);
+		} catch (Exception e) {
+			throw new MixinError("Failed to read annotation '" + annotation.type.getClassName() + "' on '" + ignoreException(annotated::toString, "annotated") + "' in '" + annotated.getClassInfo().getName() + "'", e);
+		}
 	}
 
 	public void addSource(String mixinPackage) {
@@ -223,6 +304,8 @@ public class MixinApplicator {
 		List<String> current = sources.computeIfAbsent(mixinSource, k -> new ArrayList<>());
 
 		transformer = null;
+		applicationPlan = null;
+		injectableIndices.clear();
 
 		if (current.contains(null))
 			return;
@@ -233,35 +316,477 @@ public class MixinApplicator {
 		current.add(packageName);
 	}
 
+	/**
+	 * Discovers the mixins in all added sources, merging their handlers by target class
+	 */
+	public ApplicationPlan getApplicationPlan() {
+		ApplicationPlan plan = this.applicationPlan;
+		if (plan != null)
+			return plan;
+
+		val start = startTiming();
+		val entries = new ArrayList<Map.Entry<Path, List<String>>>(sources.entrySet());
+		// class paths load lazily without locking, so each parallel worker needs its own
+		val parallel = parallelDiscovery && entries.size() > 1 && !customClassPath;
+		// parallel streams keep encounter order when collected, so the merged list matches sequential discovery
+		val discovered = (parallel ? entries.parallelStream() : entries.stream())
+			.map(entry -> {
+				val sourceStart = startTiming();
+				val found = discover(entry.getKey(), entry.getValue(), parallel ? copyClassPath() : classPath);
+				if (sourceStart != 0)
+					listener.sourceDiscovered(entry.getKey(), found.size(), System.nanoTime() - sourceStart);
+				return found;
+			})
+			.collect(Collectors.toList());
+
+		val builder = new ApplicationPlan.Builder();
+		int mixins = 0;
+		for (List<DiscoveredMixin> found : discovered) {
+			for (DiscoveredMixin mixin : found) {
+				builder.add(mixin.target, mixin.name, mixin.hash, mixin.appliers);
+				mixins++;
+			}
+		}
+		plan = builder.build();
+		// the reused mixins are now part of this applicator, so don't keep every previous applicator alive
+		previous = null;
+
+		logInfo("Found " + mixins + " mixins targeting " + plan.getTargetCount() + " classes in " + sources);
+		if (start != 0)
+			listener.planBuilt(plan, System.nanoTime() - start);
+
+		return this.applicationPlan = plan;
+	}
+
 	public JavaTransformer getMixinTransformer() {
 		JavaTransformer transformer = this.transformer;
 		if (transformer != null)
 			return transformer;
 
-		val transformers = new ArrayList<Transformer.TargetedTransformer>();
+		val plan = getApplicationPlan();
+		val applied = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
 
-		for (Map.Entry<Path, List<String>> pathListEntry : sources.entrySet()) {
-			transformer = new JavaTransformer();
-			transformer.addTransformer(classInfo -> {
-				if (packageNameMatches(classInfo.getName(), pathListEntry.getValue())) {
-					val source = processMixinSource(classInfo);
-					if (source != null)
-						transformers.add(source);
+		transformer = createTransformer(applied, transformers::add);
+		if (notAppliedIsError)
+			transformer.getAfterTransform().add(javaTransformer -> checkForSkippedTransformers(plan, applied));
+		return this.transformer = transformer;
+	}
+
+	/**
+	 * Resolves every mixin against its target without transforming or writing anything.
+	 * <p>
+	 * Only targeted classes are parsed, and only the code of injectables and of the methods they are injected into is inspected. Handlers added
+	 * by a {@link MixinHandlerProvider} are not checked.
+	 *
+	 * @param targets jar or directory containing the target classes
+	 */
+	public ValidationReport validate(Path targets) {
+		val plan = getApplicationPlan();
+		val problems = new ConcurrentHashMap<String, List<ValidationReport.Problem>>();
+		val injections = new ConcurrentHashMap<String, List<ValidationReport.Injection>>();
+		val transformer = new JavaTransformer();
+		transformer.setClassPath(ClassPaths.of(classPath, targets));
+		for (String target : plan.getTargets()) {
+			transformer.addTransformer(new Transformer.TargetedTransformer() {
+				@Override
+				public Collection<String> getTargetClasses() {
+					return Collections.singletonList(target);
+				}
+
+				@Override
+				public void transform(ClassInfo classInfo) {
+					val forTarget = new ArrayList<ValidationReport.Problem>();
+					val batch = new Injector.Batch(target, listener);
+					for (Applier applier : plan.getAppliers(target)) {
+						try {
+							applier.validate(MixinApplicator.this, classInfo, batch);
+						} catch (Exception e) {
+							forTarget.add(new ValidationReport.Problem(target, applier.describe(), String.valueOf(e.getMessage())));
+						}
+					}
+					injections.put(target, batch.validate(forTarget));
+					problems.put(target, forTarget);
 				}
 			});
-			transformer.setClassPath(classPath);
+		}
+		transformer.parse(targets);
+
+		val missing = new ArrayList<String>();
+		val allProblems = new ArrayList<ValidationReport.Problem>();
+		val allInjections = new ArrayList<ValidationReport.Injection>();
+		for (String target : plan.getTargets()) {
+			if (!injections.containsKey(target)) {
+				missing.add(target);
+				continue;
+			}
+			allProblems.addAll(problems.get(target));
+			allInjections.addAll(injections.get(target));
+		}
+		return new ValidationReport(missing, allProblems, allInjections);
+	}
+
+	/**
+	 * Builds the {@link ApplicationPlan} and returns an immutable snapshot of this applicator which can be used by many threads at once
+	 */
+	public FrozenMixinApplicator freeze() {
+		val copy = copy();
+		// share the discovered mixins rather than parsing them again
+		copy.applicationPlan = getApplicationPlan();
+		copy.injectableIndices.putAll(injectableIndices);
+		return new FrozenMixinApplicator(copy);
+	}
 
-			transformer.parse(pathListEntry.getKey());
+	/**
+	 * @return an applicator with the same sources and settings as this one and its own class path, which discovers mixins again
+	 */
+	MixinApplicator copy() {
+		val copy = new MixinApplicator();
+		sources.forEach((path, packages) -> copy.sources.put(path, new ArrayList<>(packages)));
+		copy.classPath = customClassPath ? ClassPaths.of(classPath) : copyClassPath();
+		copy.classPathEntries.addAll(classPathEntries);
+		copy.customClassPath = customClassPath;
+		copy.failOnInjectionError = failOnInjectionError;
+		copy.log = log;
+		copy.noMixinIsError = noMixinIsError;
+		copy.notAppliedIsError = notAppliedIsError;
+		copy.parallelDiscovery = parallelDiscovery;
+		copy.cacheDirectory = cacheDirectory;
+		copy.lazyMethodBodies = lazyMethodBodies;
+		copy.applicationType = applicationType;
+		copy.listener = listener;
+		return copy;
+	}
+
+	/**
+	 * Transforms a jar or directory of classes or sources.
+	 * <p>
+	 * Jars are rewritten by {@link JarTransformer}, which only parses targeted classes and copies all other entries without
+	 * recompressing them. If {@link #cacheDirectory} is set, each transformed class is also cached in it. Classes which are unchanged,
+	 * and whose mixins are unchanged, are then copied from the cache without being parsed.
+	 */
+	public void transform(Path input, Path output) {
+		if (Files.isDirectory(input)) {
+			getMixinTransformer().transform(input, output);
+			return;
 		}
 
-		logInfo("Found " + transformers.size() + " transformers in " + sources);
+		new JarTransformer(this, cacheDirectory == null ? null : new ClassOutputCache(cacheDirectory.resolve("classes"))).transform(input, output);
+	}
+
+	/**
+	 * Transforms a single class file, for use when classes are loaded one at a time.
+	 * <p>
+	 * Classes which no mixin targets are returned as null without being parsed.
+	 *
+	 * @param internalName name of the class, with '/' as the package separator
+	 * @param classPath    jar or directory the class was loaded from, used to resolve the classes it references. May be null.
+	 * @return the transformed class, or null if the class is not targeted
+	 */
+	public byte[] transformClass(String internalName, byte[] data, Path classPath) {
+		if (JarTransformer.getTarget(getApplicationPlan(), internalName + ".class") == null)
+			return null;
+		return transformClass(internalName, data, classPath == null ? null : createClassPath(classPath));
+	}
+
+	/**
+	 * Transforms a single class file, resolving the classes it references with a class path from {@link #createClassPath(Path)}.
+	 * Callers which load many classes from one jar or directory can reuse that class path for all of them.
+	 *
+	 * @param classPath class path to resolve referenced classes with, or null to use {@link #getClassPath()}
+	 * @return the transformed class, or null if the class is not targeted
+	 */
+	public byte[] transformClass(String internalName, byte[] data, ClassPath classPath) {
+		val entryName = internalName + ".class";
+		if (JarTransformer.getTarget(getApplicationPlan(), entryName) == null)
+			return null;
+
+		val applied = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+		return JarTransformer.transformEntries(this, classPath, Collections.singletonMap(entryName, data), applied).get(entryName);
+	}
+
+	public void setCacheDirectory(Path cacheDirectory) {
+		if (cacheDirectory != null)
+			CacheCleanup.cleanIfDue(cacheDirectory);
+		this.cacheDirectory = cacheDirectory;
+	}
+
+	/**
+	 * Replaces the class path, forgetting any paths added with {@link #addClassPath(Path)}
+	 */
+	public void setClassPath(@NonNull ClassPath classPath) {
+		this.classPath = classPath;
+		customClassPath = true;
+		classPathEntries.clear();
+		classPathFingerprint = null;
+	}
+
+	/**
+	 * Adds a jar or directory to {@link #getClassPath()}. Unlike paths added to the class path directly, its contents are part of
+	 * {@link #getTargetFingerprint(String)}, so cached classes are transformed again when it changes.
+	 *
+	 * @return false if the path was already on the class path
+	 */
+	public boolean addClassPath(@NonNull Path path) {
+		if (!classPath.addPath(path))
+			return false;
+		classPathEntries.add(path);
+		classPathFingerprint = null;
+		return true;
+	}
+
+	/**
+	 * @param source jar or directory containing target classes
+	 * @return {@link #getClassPath()} with the given source added, for resolving classes referenced by targets in that source
+	 */
+	public ClassPath createClassPath(@NonNull Path source) {
+		return ClassPaths.of(classPath, source);
+	}
+
+	/**
+	 * @return a hash of this library, java-transformer and every {@link MixinHandlerProvider}, which changes whenever any of them
+	 * is changed
+	 */
+	public static String getLibraryFingerprint() {
+		return LibraryFingerprint.VALUE;
+	}
 
-		transformer = new JavaTransformer();
+	/**
+	 * @return a hash of everything which affects the result of transforming the given class: this library and its handler
+	 * providers, the content of each mixin targeting it and of each path added with {@link #addClassPath(Path)}, and the
+	 * settings read by handlers
+	 */
+	public String getTargetFingerprint(String target) {
+		val plan = getApplicationPlan();
+		val parts = new ArrayList<String>();
+		parts.add(LibraryFingerprint.VALUE);
+		parts.add(getClassPathFingerprint());
+		parts.add(applicationType.name());
+		parts.add(String.valueOf(failOnInjectionError));
+		parts.add(String.valueOf(lazyMethodBodies));
+		for (String mixin : plan.getMixins(target)) {
+			parts.add(mixin);
+			parts.add(plan.getMixinHash(mixin));
+		}
+		return ContentHash.of(parts.toArray(new String[0]));
+	}
+
+	private String getClassPathFingerprint() {
+		String fingerprint = classPathFingerprint;
+		if (fingerprint != null)
+			return fingerprint;
+
+		val parts = new ArrayList<String>();
+		for (Path entry : classPathEntries) {
+			parts.add(entry.getFileName().toString());
+			parts.add(Files.exists(entry) ? ContentHash.of(entry) : "missing");
+		}
+		return classPathFingerprint = ContentHash.of(parts.toArray(new String[0]));
+	}
+
+	/**
+	 * Creates a transformer for the current plan, without the not-applied check. Targets are added to the given set as they are transformed.
+	 */
+	JavaTransformer createTransformer(Set<String> applied, Consumer<Transformer.TargetedTransformer> onCreated) {
+		val plan = getApplicationPlan();
+		val transformer = new JavaTransformer();
 		transformer.setClassPath(classPath);
-		transformers.forEach(transformer::addTransformer);
+		for (String target : plan.getTargets()) {
+			val targeted = new TargetedTransformer(target, plan.getAppliers(target), applied);
+			onCreated.accept(targeted);
+			transformer.addTransformer(targeted);
+		}
+		return transformer;
+	}
+
+	void checkApplied(Set<String> applied) {
 		if (notAppliedIsError)
-			transformer.getAfterTransform().add(javaTransformer -> checkForSkippedTransformers());
-		return this.transformer = transformer;
+			checkForSkippedTransformers(getApplicationPlan(), applied);
+	}
+
+	/**
+	 * Keeps the mixins found by this applicator, and reuses those found by the given applicator in sources which have not changed
+	 * since. If a changed source has a {@link MixinIndex}, only the mixins in it which changed are parsed again.
+	 *
+	 * @param previous applicator which was set up the same way, or null if there is none yet
+	 */
+	void reuseDiscoveries(MixinApplicator previous) {
+		discoveries = new ConcurrentHashMap<>();
+		boolean compatible = previous != null && previous.discoveries != null && previous.applicationType == applicationType && previous.noMixinIsError == noMixinIsError;
+		this.previous = compatible ? previous : null;
+		applicationPlan = null;
+	}
+
+	/**
+	 * @return a class path with the same contents as the default class path, which shares no lazily loaded state with it
+	 */
+	private ClassPath copyClassPath() {
+		val copy = ClassPaths.of(ClassPaths.of(ClassPaths.SystemClassPath.SYSTEM_CLASS_PATH, JavaTransformer.pathFromClass(Mixin.class)));
+		for (Path entry : classPathEntries)
+			copy.addPath(entry);
+		return copy;
+	}
+
+	private List<DiscoveredMixin> discover(Path path, List<String> packages, ClassPath sourceClassPath) {
+		if (discoveries == null)
+			return discoverMixins(path, packages, sourceClassPath);
+
+		val hash = ContentHash.of(path);
+		val last = previous == null ? null : previous.discoveries.get(path);
+		List<DiscoveredMixin> found;
+		if (last == null || !last.packages.equals(packages)) {
+			found = discoverMixins(path, packages, sourceClassPath);
+		} else if (last.hash.equals(hash)) {
+			logInfo("Reusing mixins discovered in " + path);
+			found = last.mixins;
+			reuseInjectables(found);
+		} else {
+			val indexed = readIndex(path, packages);
+			found = indexed == null ? discoverMixins(path, packages, sourceClassPath) : rediscoverChanged(path, packages, indexed, last, sourceClassPath);
+		}
+		discoveries.put(path, new SourceDiscovery(hash, new ArrayList<>(packages), found));
+		return found;
+	}
+
+	/**
+	 * Parses the listed mixins whose class or source file changed, and reuses the rest
+	 */
+	private List<DiscoveredMixin> rediscoverChanged(Path path, List<String> packages, List<String> names, SourceDiscovery last, ClassPath sourceClassPath) {
+		val lastByName = new HashMap<String, DiscoveredMixin>();
+		for (DiscoveredMixin mixin : last.mixins)
+			lastByName.put(nestedName(mixin.name), mixin);
+
+		val changed = new ArrayList<String>();
+		for (String name : names) {
+			val lastMixin = lastByName.get(nestedName(name));
+			if (lastMixin == null || !lastMixin.hash.equals(ContentHash.ofClass(path, name)))
+				changed.add(name);
+		}
+		logInfo("Parsing " + changed.size() + " changed mixins in " + path);
+
+		val parsed = new HashMap<String, DiscoveredMixin>();
+		for (DiscoveredMixin mixin : parseMixins(path, changed, packages, sourceClassPath))
+			parsed.put(nestedName(mixin.name), mixin);
+
+		val found = new ArrayList<DiscoveredMixin>();
+		val reused = new ArrayList<DiscoveredMixin>();
+		for (String name : names) {
+			DiscoveredMixin mixin = parsed.get(nestedName(name));
+			if (mixin == null && !changed.contains(name) && packageNameMatches(name, packages)) {
+				mixin = lastByName.get(nestedName(name));
+				reused.add(mixin);
+			}
+			if (mixin != null)
+				found.add(mixin);
+		}
+		reuseInjectables(reused);
+		return found;
+	}
+
+	private void reuseInjectables(List<DiscoveredMixin> mixins) {
+		for (DiscoveredMixin mixin : mixins)
+			injectableIndices.put(mixin.clazz, previous.injectableIndices.get(mixin.clazz));
+	}
+
+	private List<DiscoveredMixin> discoverMixins(Path path, List<String> packages, ClassPath sourceClassPath) {
+		val indexed = readIndex(path, packages);
+		if (indexed != null) {
+			logInfo("Using " + MixinIndex.PATH + " for " + path);
+			return parseMixins(path, indexed, packages, sourceClassPath);
+		}
+
+		val cache = cacheDirectory == null ? null : new MixinSourceCache(cacheDirectory.resolve("sources"));
+		val hash = cache == null ? null : ContentHash.of(path);
+		val cached = cache == null ? null : cache.get(hash);
+
+		if (cached != null) {
+			logInfo("Using cached mixin list for " + path);
+			if (noMixinIsError)
+				for (String other : cached.getOthers())
+					if (packageNameMatches(other, packages))
+						throw new RuntimeException("Class " + other + " is not an @Mixin");
+			return parseMixins(path, cached.getMixins(), packages, sourceClassPath);
+		}
+
+		val found = new ArrayList<DiscoveredMixin>();
+		val transformer = new JavaTransformer();
+		transformer.setClassPath(sourceClassPath);
+		val entry = new MixinSourceCache.Entry();
+		transformer.addTransformer(classInfo -> {
+			if (cache != null) {
+				val mixins = classInfo.getAnnotations("dev.minco.mixin.Mixin");
+				if (mixins.size() == 1)
+					entry.addMixin(classInfo.getName(), getMixinTarget(classInfo, mixins.get(0)));
+				else
+					entry.addOther(classInfo.getName());
+			}
+
+			if (packageNameMatches(classInfo.getName(), packages)) {
+				val source = processMixinSource(classInfo, path);
+				if (source != null)
+					found.add(source);
+			}
+		});
+
+		transformer.parse(path);
+
+		if (cache != null)
+			cache.put(hash, entry);
+		return found;
+	}
+
+	/**
+	 * @return the mixins listed in the index of the given source, or null if it has no index. If {@link #noMixinIsError} is set,
+	 * the classes in the source are listed to check that every class in the given packages is indexed as a mixin.
+	 */
+	private List<String> readIndex(Path path, List<String> packages) {
+		val indexed = MixinIndex.read(path);
+		if (indexed == null)
+			return null;
+
+		val mixins = indexed.getMixins();
+		if (noMixinIsError) {
+			val names = new HashSet<String>(mixins);
+			for (String other : MixinIndex.listClasses(path))
+				if (packageNameMatches(other, packages) && !names.contains(other))
+					throw new RuntimeException("Class " + other + " is not an @Mixin");
+		}
+		return mixins;
+	}
+
+	/**
+	 * Parses only the given mixin classes in a source
+	 */
+	private List<DiscoveredMixin> parseMixins(Path path, List<String> names, List<String> packages, ClassPath sourceClassPath) {
+		val found = new ArrayList<DiscoveredMixin>();
+		val mixins = new LinkedHashSet<String>();
+		for (String name : names) {
+			if (packageNameMatches(name, packages)) {
+				// the index uses binary names, classes parsed from sources name nested classes with '.'
+				mixins.add(name);
+				mixins.add(nestedName(name));
+			}
+		}
+		if (mixins.isEmpty())
+			return found;
+
+		val transformer = new JavaTransformer();
+		transformer.setClassPath(sourceClassPath);
+		// targeted, so JavaTransformer only parses the listed mixin classes
+		transformer.addTransformer(new Transformer.TargetedTransformer() {
+			@Override
+			public Collection<String> getTargetClasses() {
+				return mixins;
+			}
+
+			@Override
+			public void transform(ClassInfo classInfo) {
+				val source = processMixinSource(classInfo, path);
+				if (source != null)
+					found.add(source);
+			}
+		});
+		transformer.parse(path);
+		return found;
 	}
 
 	public void setLog(Consumer<String> log) {
@@ -272,16 +797,16 @@ public class MixinApplicator {
 		this.log = log;
 	}
 
-	private void checkForSkippedTransformers() {
-		HashSet<Transformer.TargetedTransformer> notRan = transformers.stream()
-			.filter(targetedTransformer -> !targetedTransformer.ran).collect(Collectors.toCollection(HashSet::new));
+	private static void checkForSkippedTransformers(ApplicationPlan plan, Set<String> applied) {
+		val notApplied = new LinkedHashSet<String>(plan.getTargets());
+		notApplied.removeAll(applied);
 
-		if (!notRan.isEmpty()) {
-			throw new MixinError(notRan.size() + " Transformers were not applied: " + transformers);
+		if (!notApplied.isEmpty()) {
+			throw new MixinError(notApplied.size() + " Transformers were not applied: " + notApplied);
 		}
 	}
 
-	private Transformer.TargetedTransformer processMixinSource(ClassInfo clazz) {
+	private DiscoveredMixin processMixinSource(ClassInfo clazz, Path source) {
 		List<Annotation> mixins = clazz.getAnnotations("dev.minco.mixin.Mixin");
 
 		if (mixins.size() == 0)
@@ -293,97 +818,201 @@ public class MixinApplicator {
 		if (mixins.size() > 1)
 			throw new MixinError(clazz.getName() + " can not use @Mixin multiple times");
 
-		val mixin = mixins.get(0);
-		String target = (String) mixin.values.get("target");
-
-		if (target == null || target.isEmpty()) {
-			target = clazz.getSuperType().getClassName();
-		}
+		val target = getMixinTarget(clazz, mixins.get(0));
 
 		if (!clazz.getAccessFlags().has(AccessFlags.ACC_ABSTRACT)) {
 			throw new MixinError(clazz.getName() + " must be abstract to use @Mixin");
 		}
 
-		List<Consumer<ClassInfo>> applicators = Stream.concat(Stream.of(clazz), clazz.getMembers())
-			.flatMap(this::handleAnnotation).sorted().collect(Collectors.toList());
+		injectableIndices.put(clazz, InjectableIndex.of(clazz));
+
+		val applicators = new ArrayList<Applier>();
+		handleAnnotations(clazz, applicators);
+		clazz.getMembers().forEach(member -> handleAnnotations(member, applicators));
 
 		logInfo("Found Mixin class '" + clazz.getName() + "' targeting class '" + target + " with " + applicators.size() + " applicators.");
 
 		assert !applicators.isEmpty();
 
-		final String finalTarget = target;
-		TargetedTransformer transformer = new TargetedTransformer() {
-			@Override
-			public Collection<String> getTargetClasses() {
-				return Collections.singletonList(finalTarget);
-			}
-
-			@Override
-			public void transform(ClassInfo classInfo) {
-				ran = true;
-				applicators.forEach(applicator -> applicator.accept(classInfo));
-			}
-		};
-		transformers.add(transformer);
-		return transformer;
+		return new DiscoveredMixin(clazz, clazz.getName(), target, ContentHash.ofClass(source, clazz.getName()), applicators);
 	}
 
-	@FunctionalInterface
-	private interface AnnotationApplier<T extends ClassMember> {
-		void apply(MixinApplicator applicator, Annotation annotation, T annotatedMember, ClassInfo mixinTarget);
+	/**
+	 * @return the given class name with nested classes separated by '.' instead of '$'
+	 */
+	private static String nestedName(String name) {
+		return name.replace('$', '.');
 	}
 
-	@FunctionalInterface
-	private interface SpecificAnnotationApplier<T extends ClassMember, A extends java.lang.annotation.Annotation> {
-		void apply(MixinApplicator applicator, A annotation, T annotatedMember, ClassInfo mixinTarget);
+	private static String getMixinTarget(ClassInfo clazz, Annotation mixin) {
+		String target = (String) mixin.values.get("target");
+
+		if (target == null || target.isEmpty()) {
+			target = clazz.getSuperType().getClassName();
+		}
+		return target;
 	}
 
+	/**
+	 * A handler bound to one annotation on one mixin member
+	 */
 	@RequiredArgsConstructor
-	@SuppressWarnings("rawtypes")
-	private static class SortableConsumer<T> implements Consumer<T>, Comparable {
-		private final int sortIndex;
-		private final Consumer<T> consumer;
+	static final class Applier {
+		private final IndexedAnnotationApplier<?, ?> applier;
+		private final Annotation annotation;
+		private final java.lang.annotation.Annotation instance;
+		private final ClassMember annotated;
 
-		static <T> SortableConsumer<T> of(int sortIndex, Consumer<T> annotated) {
-			return new SortableConsumer<>(sortIndex, annotated);
+		int getSortIndex() {
+			return applier.sortIndex;
 		}
 
-		int getSortIndex() {
-			return sortIndex;
+		/**
+		 * @return name of the annotated method, which the handler may change in the target, or null if a field or class is annotated
+		 */
+		String getMethodName() {
+			return annotated instanceof MethodInfo ? annotated.getName() : null;
 		}
 
-		@Override
-		public void accept(T t) {
-			consumer.accept(t);
+		void apply(MixinApplicator applicator, ClassInfo target) {
+			val start = applicator.startTiming();
+			try {
+				applier.apply(applicator, instance, annotated, target);
+			} catch (Exception e) {
+				throw new MixinError("Failed to apply handler for annotation '" + annotation.type.getClassName() + "' on '" + ignoreException(annotated::toString, "annotated") + "' in '" + annotated.getClassInfo().getName() + "' to '" + target.getName() + "'", e);
+			}
+			if (start != 0)
+				applicator.listener.handlerApplied(target.getName(), applier.annotationType, annotated, System.nanoTime() - start);
 		}
 
-		@Override
-		public int compareTo(Object other) {
-			return Integer.compare(getSortIndex(), ((SortableConsumer) other).getSortIndex());
+		/**
+		 * Checks that this handler could be applied to the target without changing it. Injections are added to the batch so
+		 * their sites can be found.
+		 */
+		void validate(MixinApplicator applicator, ClassInfo target, Injector.Batch batch) {
+			val type = applier.annotationType;
+			if (type == Inject.class || type == Injects.class) {
+				// the target method is resolved when the batch is validated
+				val member = (MethodInfo) annotated;
+				val injects = type == Inject.class ? new Inject[]{(Inject) instance} : ((Injects) instance).value();
+				for (Inject inject : injects)
+					applicator.addInjection(batch, member, target, inject);
+			} else if (type == Overwrite.class || type == Synchronize.class) {
+				get((MethodInfo) annotated, target);
+			} else if (type == Flags.class && !(annotated instanceof ClassInfo)) {
+				if (target.get(annotated) == null)
+					throw new MixinError("Can't find member matching " + annotated + " in target " + target);
+			} else if (type == Add.class && annotated instanceof FieldInfo && !annotated.getName().endsWith("_")) {
+				throw new MixinError("Name of @Add-ed field must end with '_'");
+			}
+		}
+
+		String describe() {
+			return "@" + annotation.type.getClassName() + " on '" + ignoreException(annotated::toString, "annotated") + "' in '" + annotated.getClassInfo().getName() + "'";
 		}
 
 		@Override
 		public String toString() {
-			return sortIndex + ": " + consumer;
+			return getSortIndex() + ": " + describe();
+		}
+	}
+
+	private static class LibraryFingerprint {
+		static final String VALUE = compute();
+
+		private static String compute() {
+			val parts = new ArrayList<String>();
+			parts.add(String.valueOf(MixinApplicator.class.getPackage().getImplementationVersion()));
+			parts.add(ContentHash.of(JavaTransformer.pathFromClass(MixinApplicator.class)));
+			parts.add(ContentHash.of(JavaTransformer.pathFromClass(JavaTransformer.class)));
+			for (MixinHandlerProvider provider : handlerProviders) {
+				parts.add(provider.getClass().getName());
+				parts.add(ContentHash.of(JavaTransformer.pathFromClass(provider.getClass())));
+			}
+			return ContentHash.of(parts.toArray(new String[0]));
 		}
 	}
 
+	@RequiredArgsConstructor
+	private static class DiscoveredMixin {
+		final ClassInfo clazz;
+		final String name;
+		final String target;
+		/**
+		 * Hash of the mixin's class or source file, taken at discovery so it matches the parsed handlers
+		 */
+		final String hash;
+		final List<Applier> appliers;
+	}
+
+	@RequiredArgsConstructor
+	private static class SourceDiscovery {
+		final String hash;
+		final List<String> packages;
+		final List<DiscoveredMixin> mixins;
+	}
+
 	@AllArgsConstructor
-	static class IndexedAnnotationApplier<T extends ClassMember> {
+	static class IndexedAnnotationApplier<T extends ClassMember, A extends java.lang.annotation.Annotation> {
 		final int sortIndex;
-		final AnnotationApplier<T> applier;
+		final Class<T> memberType;
+		final Class<A> annotationType;
+		final MixinHandler<T, A> handler;
+
+		@SuppressWarnings("unchecked")
+		void apply(MixinApplicator applicator, java.lang.annotation.Annotation annotation, ClassMember annotatedMember, ClassInfo mixinTarget) {
+			handler.apply(applicator, (A) annotation, (T) annotatedMember, mixinTarget);
+		}
+	}
+
+	private static class HandlerRegistry implements MixinHandlerProvider.Registry {
+		private final Map<String, List<IndexedAnnotationApplier<?, ?>>> handlers = new HashMap<>();
+
+		@Override
+		public <T extends ClassMember, A extends java.lang.annotation.Annotation> void addHandler(Class<T> memberType, Class<A> annotationType, int sortIndex, MixinHandler<T, A> handler) {
+			handlers.computeIfAbsent(annotationType.getName(), k -> new ArrayList<>()).add(new IndexedAnnotationApplier<>(sortIndex, memberType, annotationType, handler));
+		}
 
-		void apply(MixinApplicator applicator, Annotation annotation, T annotatedMember, ClassInfo mixinTarget) {
-			applier.apply(applicator, annotation, annotatedMember, mixinTarget);
+		Map<String, List<IndexedAnnotationApplier<?, ?>>> build() {
+			val result = new HashMap<String, List<IndexedAnnotationApplier<?, ?>>>();
+			handlers.forEach((name, forName) -> result.put(name, Collections.unmodifiableList(new ArrayList<>(forName))));
+			return Collections.unmodifiableMap(result);
 		}
 	}
 
-	private static abstract class TargetedTransformer implements Transformer.TargetedTransformer {
-		boolean ran;
+	/**
+	 * Applies every handler in the {@link ApplicationPlan} for one target in a single pass
+	 */
+	@RequiredArgsConstructor
+	private class TargetedTransformer implements Transformer.TargetedTransformer {
+		private final String target;
+		private final List<Applier> appliers;
+		private final Set<String> applied;
+
+		@Override
+		public Collection<String> getTargetClasses() {
+			return Collections.singletonList(target);
+		}
+
+		@Override
+		public void transform(ClassInfo classInfo) {
+			val start = startTiming();
+			applied.add(target);
+			val batch = new Injector.Batch(target, listener);
+			injectionBatches.put(classInfo, batch);
+			try {
+				for (Applier applier : appliers)
+					applier.apply(MixinApplicator.this, classInfo);
+				batch.apply(classInfo, failOnInjectionError);
+			} finally {
+				injectionBatches.remove(classInfo);
+			}
+			if (start != 0)
+				listener.targetTransformed(target, System.nanoTime() - start);
+		}
 
 		public String toString() {
-			val classes = getTargetClasses();
-			return classes.size() == 1 ? classes.iterator().next() : classes.toString();
+			return target;
 		}
 	}
 }
@@ -0,0 +1,16 @@
+package dev.minco.mixin.internal;
+
+import dev.minco.javatransformer.api.ClassInfo;
+import dev.minco.javatransformer.api.ClassMember;
+
+/**
+ * Applies one annotation on a mixin member to the mixin's target class
+ *
+ * @param <T> type of member this handler applies to. Handlers are not called for other member types.
+ * @param <A> annotation type this handler is registered for
+ * @see MixinHandlerProvider
+ */
+@FunctionalInterface
+public interface MixinHandler<T extends ClassMember, A extends java.lang.annotation.Annotation> {
+	void apply(MixinApplicator applicator, A annotation, T annotatedMember, ClassInfo mixinTarget);
+}
@@ -0,0 +1,27 @@
+package dev.minco.mixin.internal;
+
+import dev.minco.javatransformer.api.ClassMember;
+
+/**
+ * Service provider interface for registering additional {@link MixinHandler}s.
+ * <p>
+ * Implementations are found with {@link java.util.ServiceLoader} when {@link MixinApplicator} is initialised,
+ * so must be listed in {@code META-INF/services/dev.minco.mixin.internal.MixinHandlerProvider}.
+ */
+public interface MixinHandlerProvider {
+	void addHandlers(Registry registry);
+
+	interface Registry {
+		/**
+		 * Registers a handler for an annotation.
+		 * <p>
+		 * All handlers for all mixins targeting a class are applied in order of their sort index.
+		 * Built in handlers use {@link Integer#MIN_VALUE} for logging, 0 for most handlers, and 1 and 2 for access and member changes.
+		 */
+		<T extends ClassMember, A extends java.lang.annotation.Annotation> void addHandler(Class<T> memberType, Class<A> annotationType, int sortIndex, MixinHandler<T, A> handler);
+
+		default <T extends ClassMember, A extends java.lang.annotation.Annotation> void addHandler(Class<T> memberType, Class<A> annotationType, MixinHandler<T, A> handler) {
+			addHandler(memberType, annotationType, 0, handler);
+		}
+	}
+}
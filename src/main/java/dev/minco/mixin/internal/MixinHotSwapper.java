@@ -0,0 +1,233 @@
+package dev.minco.mixin.internal;
+
+import java.lang.instrument.ClassDefinition;
+import java.lang.instrument.Instrumentation;
+import java.lang.instrument.UnmodifiableClassException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.val;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.FieldNode;
+import org.objectweb.asm.tree.MethodNode;
+
+/**
+ * Re-applies a changed set of mixins to classes which are already loaded, with {@link Instrumentation#redefineClasses}.
+ * <p>
+ * The JVM does not keep the original bytes of a class, so each target must be {@link #record recorded} when it is defined.
+ * On {@link #swap}, every recorded class which is still loaded is transformed again from its original bytes. Redefinition can
+ * only change method bodies, so before anything is redefined the class header and the name, descriptor and access flags of every
+ * field and method are compared with the bytes currently defined. If any class differs, nothing is redefined. Classes which the
+ * new mixins no longer target are restored to their original bytes. Classes which were not targeted when they were loaded are not
+ * recorded, so they are not affected.
+ * <p>
+ * Classes are recorded by their loader and name, so classes with the same name in different loaders are swapped separately.
+ * A class recorded with an older applicator may not be visible to {@link Instrumentation#getAllLoadedClasses()} yet, if it was
+ * still being defined when the swap started. Such classes are looked for again {@link #PENDING_RETRIES} times, and then forgotten.
+ */
+@RequiredArgsConstructor
+public final class MixinHotSwapper {
+	static final int PENDING_RETRIES = 10;
+	private static final long PENDING_RETRY_MILLIS = 10;
+	@NonNull
+	private final Instrumentation instrumentation;
+	private final Map<ClassLoader, Map<String, Definition>> definitions = Collections.synchronizedMap(new WeakHashMap<>());
+
+	/**
+	 * Records a class as it is defined
+	 *
+	 * @param loader loader defining the class, or null for the bootstrap loader
+	 * @param internalName class name, separated with '/'
+	 * @param original bytes before any mixin was applied
+	 * @param current bytes which were defined
+	 * @param classPath jar or directory the class was loaded from, or null
+	 * @param applicator applicator the current bytes were transformed with, or null if unknown
+	 */
+	public void record(ClassLoader loader, @NonNull String internalName, @NonNull byte[] original, @NonNull byte[] current, Path classPath, MixinApplicator applicator) {
+		definitions.computeIfAbsent(loader, k -> new ConcurrentHashMap<>()).put(internalName, new Definition(original, classPath, current, applicator));
+	}
+
+	/**
+	 * Transforms every recorded class which is still loaded with the given applicator, and redefines those which changed
+	 *
+	 * @return the classes which were redefined
+	 * @throws MixinError if any class would change more than its method bodies, in which case no class is redefined, or if the
+	 * JVM rejects the new bytes
+	 */
+	public synchronized List<Class<?>> swap(@NonNull MixinApplicator applicator) {
+		if (!instrumentation.isRedefineClassesSupported())
+			throw new MixinError("Redefining classes is not supported by this JVM or agent");
+
+		val redefined = redefine(applicator, findLoaded(null));
+
+		for (int retry = 0; retry < PENDING_RETRIES; retry++) {
+			val pending = findPending(applicator);
+			if (pending.isEmpty())
+				break;
+			try {
+				Thread.sleep(PENDING_RETRY_MILLIS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+			redefined.addAll(redefine(applicator, findLoaded(pending)));
+		}
+
+		// whatever is still pending was never defined, or is taking too long to be worth waiting for
+		val abandoned = findPending(applicator);
+		if (!abandoned.isEmpty())
+			for (Map<String, Definition> forLoader : snapshot().values())
+				forLoader.values().removeIf(abandoned::contains);
+		return redefined;
+	}
+
+	private Map<ClassLoader, Map<String, Definition>> snapshot() {
+		synchronized (definitions) {
+			return new HashMap<>(definitions);
+		}
+	}
+
+	/**
+	 * @param only definitions to look for, or null for all of them
+	 * @return the loaded class for each recorded definition which is still loaded
+	 */
+	private Map<Class<?>, Definition> findLoaded(Set<Definition> only) {
+		val recorded = snapshot();
+		val loaded = new LinkedHashMap<Class<?>, Definition>();
+		for (Class<?> clazz : instrumentation.getAllLoadedClasses()) {
+			val forLoader = recorded.get(clazz.getClassLoader());
+			if (forLoader == null)
+				continue;
+			val definition = forLoader.get(clazz.getName().replace('.', '/'));
+			if (definition != null && (only == null || only.contains(definition)))
+				loaded.put(clazz, definition);
+		}
+		return loaded;
+	}
+
+	/**
+	 * @return recorded definitions which were transformed with another applicator, but whose class isn't loaded yet
+	 */
+	private Set<Definition> findPending(MixinApplicator applicator) {
+		val pending = Collections.newSetFromMap(new IdentityHashMap<Definition, Boolean>());
+		for (Map<String, Definition> forLoader : snapshot().values())
+			for (Definition definition : forLoader.values())
+				if (definition.applicator != applicator)
+					pending.add(definition);
+		return pending;
+	}
+
+	private List<Class<?>> redefine(MixinApplicator applicator, Map<Class<?>, Definition> loaded) {
+		val redefinitions = new LinkedHashMap<Definition, ClassDefinition>();
+		val problems = new ArrayList<String>();
+		loaded.forEach((clazz, definition) -> {
+			val name = clazz.getName().replace('.', '/');
+			byte[] transformed = applicator.transformClass(name, definition.original, definition.classPath);
+			if (transformed == null)
+				transformed = definition.original;
+			if (Arrays.equals(transformed, definition.current)) {
+				definition.applicator = applicator;
+				return;
+			}
+
+			val difference = schemaDifference(definition.current, transformed);
+			if (difference != null)
+				problems.add(name + ": " + difference);
+			else
+				redefinitions.put(definition, new ClassDefinition(clazz, transformed));
+		});
+
+		if (!problems.isEmpty())
+			throw new MixinError("Can't redefine classes whose mixins change more than method bodies:\n\t" + String.join("\n\t", problems));
+		if (redefinitions.isEmpty())
+			return new ArrayList<>();
+
+		try {
+			instrumentation.redefineClasses(redefinitions.values().toArray(new ClassDefinition[0]));
+		} catch (ClassNotFoundException | UnmodifiableClassException | RuntimeException | LinkageError e) {
+			// VerifyError, ClassFormatError and UnsupportedOperationException are thrown for bytes the JVM won't accept
+			val names = new ArrayList<String>();
+			for (ClassDefinition redefinition : redefinitions.values())
+				names.add(redefinition.getDefinitionClass().getName());
+			throw new MixinError("Failed to redefine " + names, e);
+		}
+
+		val redefined = new ArrayList<Class<?>>();
+		redefinitions.forEach((definition, redefinition) -> {
+			definition.current = redefinition.getDefinitionClassFile();
+			definition.applicator = applicator;
+			redefined.add(redefinition.getDefinitionClass());
+		});
+		return redefined;
+	}
+
+	/**
+	 * @return a description of the first difference which redefinition can't apply, or null if only method bodies differ
+	 */
+	static String schemaDifference(byte[] current, byte[] replacement) {
+		ClassNode before;
+		ClassNode after;
+		try {
+			before = readSchema(current);
+			after = readSchema(replacement);
+		} catch (RuntimeException e) {
+			return "unreadable class file: " + e;
+		}
+
+		if (!Objects.equals(before.name, after.name))
+			return "name changed from " + before.name + " to " + after.name;
+		if (!Objects.equals(before.superName, after.superName))
+			return "super type changed from " + before.superName + " to " + after.superName;
+		if (before.access != after.access)
+			return "access flags changed from 0x" + Integer.toHexString(before.access) + " to 0x" + Integer.toHexString(after.access);
+		if (!before.interfaces.equals(after.interfaces))
+			return "interfaces changed from " + before.interfaces + " to " + after.interfaces;
+
+		val beforeMembers = memberSchema(before);
+		val afterMembers = memberSchema(after);
+		val removed = new TreeSet<String>(beforeMembers);
+		removed.removeAll(afterMembers);
+		val added = new TreeSet<String>(afterMembers);
+		added.removeAll(beforeMembers);
+		if (!removed.isEmpty() || !added.isEmpty())
+			return "members changed, removed " + removed + ", added " + added;
+		return null;
+	}
+
+	private static ClassNode readSchema(byte[] data) {
+		val node = new ClassNode();
+		new ClassReader(data).accept(node, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+		return node;
+	}
+
+	/**
+	 * @return access flags, name and descriptor of every field and method
+	 */
+	private static Set<String> memberSchema(ClassNode node) {
+		val schema = new TreeSet<String>();
+		for (FieldNode field : node.fields)
+			schema.add(field.name + ':' + field.desc + " access=0x" + Integer.toHexString(field.access));
+		for (MethodNode method : node.methods)
+			schema.add(method.name + method.desc + " access=0x" + Integer.toHexString(method.access));
+		return schema;
+	}
+
+	private static final class Definition {
+		final byte[] original;
+		final Path classPath;
+		volatile byte[] current;
+		volatile MixinApplicator applicator;
+
+		Definition(byte[] original, Path classPath, byte[] current, MixinApplicator applicator) {
+			this.original = original;
+			this.classPath = classPath;
+			this.current = current;
+			this.applicator = applicator;
+		}
+	}
+}
@@ -0,0 +1,116 @@
+package dev.minco.mixin.internal;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import lombok.experimental.UtilityClass;
+import lombok.val;
+
+/**
+ * Index of the mixins in a jar or directory, written at compile time by the mixin annotation processor.
+ * <p>
+ * The index is a UTF-8 text file at {@link #PATH}. The first line is {@link #FORMAT}, followed by one line per mixin and one per
+ * annotated member:
+ * <pre>
+ * mixin &lt;mixin class&gt; &lt;target class&gt;
+ * member &lt;mixin class&gt; &lt;annotation class&gt; &lt;member name&gt;
+ * </pre>
+ */
+@UtilityClass
+public class MixinIndex {
+	public static final String PATH = "META-INF/mixin-index";
+	public static final String FORMAT = "mixin-index 1";
+
+	/**
+	 * @return the mixins listed in the index of the given source, or null if it has no usable index
+	 */
+	static MixinSourceCache.Entry read(Path source) {
+		try {
+			if (Files.isDirectory(source)) {
+				val file = source.resolve(PATH);
+				return Files.isRegularFile(file) ? parse(Files.readAllLines(file, StandardCharsets.UTF_8)) : null;
+			}
+			if (!Files.isRegularFile(source))
+				return null;
+
+			try (ZipFile zip = new ZipFile(source.toFile())) {
+				val entry = zip.getEntry(PATH);
+				if (entry == null)
+					return null;
+				val lines = new ArrayList<String>();
+				try (BufferedReader reader = new BufferedReader(new InputStreamReader(zip.getInputStream(entry), StandardCharsets.UTF_8))) {
+					String line;
+					while ((line = reader.readLine()) != null)
+						lines.add(line);
+				}
+				return parse(lines);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * @return the binary names of all classes in the given jar or directory, except package-info and module-info
+	 */
+	static List<String> listClasses(Path source) {
+		val entries = new ArrayList<String>();
+		try {
+			if (Files.isDirectory(source)) {
+				try (Stream<Path> stream = Files.walk(source)) {
+					entries.addAll(stream.filter(Files::isRegularFile).map(it -> source.relativize(it).toString().replace('\\', '/')).collect(Collectors.toList()));
+				}
+			} else {
+				try (ZipFile zip = new ZipFile(source.toFile())) {
+					Enumeration<? extends ZipEntry> zipEntries = zip.entries();
+					while (zipEntries.hasMoreElements())
+						entries.add(zipEntries.nextElement().getName());
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		val classes = new ArrayList<String>();
+		for (String entry : entries) {
+			if (!entry.endsWith(".class") || entry.startsWith("META-INF/") || entry.endsWith("package-info.class") || entry.endsWith("module-info.class"))
+				continue;
+			classes.add(entry.substring(0, entry.length() - ".class".length()).replace('/', '.'));
+		}
+		return classes;
+	}
+
+	private static MixinSourceCache.Entry parse(List<String> lines) {
+		if (lines.isEmpty() || !FORMAT.equals(lines.get(0)))
+			return null;
+
+		val entry = new MixinSourceCache.Entry();
+		for (String line : lines.subList(1, lines.size())) {
+			if (line.isEmpty())
+				continue;
+			val parts = line.split(" ");
+			switch (parts[0]) {
+				case "mixin":
+					entry.addMixin(parts[1], parts[2]);
+					break;
+				case "member":
+					break;
+				default:
+					throw new MixinError("Unknown line in " + PATH + ": " + line);
+			}
+		}
+		return entry;
+	}
+}
@@ -0,0 +1,95 @@
+package dev.minco.mixin.internal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.val;
+
+/**
+ * On-disk cache of which classes in a mixin source are mixins, keyed by a hash of the source's contents.
+ * <p>
+ * Mixin members are copied into their targets as parsed {@link dev.minco.javatransformer.api.ClassMember}s, so mixin classes
+ * must still be parsed on a cache hit. Every other class in the source is skipped.
+ */
+@RequiredArgsConstructor
+class MixinSourceCache {
+	private static final String FORMAT = "mixin-source-cache 1";
+	@NonNull
+	private final Path directory;
+
+	/**
+	 * @return the cached entry, or null if there is no usable entry for this hash
+	 */
+	Entry get(String hash) {
+		val file = directory.resolve(hash);
+		if (!Files.isRegularFile(file))
+			return null;
+
+		List<String> lines;
+		try {
+			lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+		} catch (IOException e) {
+			return null;
+		}
+		if (lines.isEmpty() || !FORMAT.equals(lines.get(0)))
+			return null;
+		CacheCleanup.touch(file);
+
+		val entry = new Entry();
+		for (String line : lines.subList(1, lines.size())) {
+			val parts = line.split(" ");
+			switch (parts[0]) {
+				case "mixin":
+					entry.addMixin(parts[1], parts[2]);
+					break;
+				case "class":
+					entry.addOther(parts[1]);
+					break;
+				default:
+					return null;
+			}
+		}
+		return entry;
+	}
+
+	void put(String hash, Entry entry) {
+		val lines = new ArrayList<String>();
+		lines.add(FORMAT);
+		for (int i = 0; i < entry.mixins.size(); i++)
+			lines.add("mixin " + entry.mixins.get(i) + ' ' + entry.targets.get(i));
+		for (String other : entry.others)
+			lines.add("class " + other);
+
+		try {
+			Files.createDirectories(directory);
+			val temp = Files.createTempFile(directory, hash, ".tmp");
+			Files.write(temp, lines, StandardCharsets.UTF_8);
+			Files.move(temp, directory.resolve(hash), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Getter
+	static class Entry {
+		private final List<String> mixins = new ArrayList<>();
+		private final List<String> targets = new ArrayList<>();
+		private final List<String> others = new ArrayList<>();
+
+		synchronized void addMixin(String name, String target) {
+			mixins.add(name);
+			targets.add(target);
+		}
+
+		synchronized void addOther(String name) {
+			others.add(name);
+		}
+	}
+}
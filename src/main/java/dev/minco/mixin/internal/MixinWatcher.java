@@ -0,0 +1,257 @@
+package dev.minco.mixin.internal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import lombok.NonNull;
+import lombok.val;
+
+/**
+ * Applies mixins to a jar or directory of targets, then watches the mixin sources and re-applies them when they change.
+ * <p>
+ * Only targeted classes are written to the output directory, at their path in the input. Entry names and the original bytes of
+ * targeted classes are kept in memory, as is the {@link MixinApplicator#getTargetFingerprint(String) fingerprint} of each
+ * target. Each cycle builds a new {@link ApplicationPlan}, reusing the mixins parsed by the last cycle from each source which has not
+ * changed, and only transforms the targets whose fingerprint changed, which happens when one of their mixins changes. Sources
+ * with a {@link MixinIndex} only have their changed mixins parsed again. Classes which are no longer targeted are written back
+ * unchanged.
+ */
+public final class MixinWatcher implements Closeable {
+	private static final long SETTLE_MILLIS = 100;
+	private final Supplier<MixinApplicator> applicatorFactory;
+	private final Path targets;
+	private final Path output;
+	private final Consumer<String> log;
+	private final List<String> entryNames;
+	private final Map<String, byte[]> originals = new ConcurrentHashMap<>();
+	private Map<String, String> fingerprints = new HashMap<>();
+	/**
+	 * Applicator of the last successful cycle, whose discovered mixins are reused
+	 */
+	private MixinApplicator last;
+	/**
+	 * File names of the watched jars in each directory
+	 */
+	private final Map<Path, Set<Path>> watchedJars = new HashMap<>();
+	private final Set<Path> watchedDirectories = new HashSet<>();
+	private WatchService watchService;
+
+	/**
+	 * @param applicatorFactory creates an applicator with the mixin sources to watch. Called once per cycle.
+	 * @param targets jar or directory containing the target classes
+	 * @param output directory to write transformed classes to
+	 */
+	public MixinWatcher(@NonNull Supplier<MixinApplicator> applicatorFactory, @NonNull Path targets, @NonNull Path output, @NonNull Consumer<String> log) {
+		this.applicatorFactory = applicatorFactory;
+		this.targets = targets;
+		this.output = output;
+		this.log = log;
+		entryNames = listEntries(targets);
+	}
+
+	/**
+	 * Usage: {@code MixinWatcher <targets> <output> <mixin source>...}
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+		if (args.length < 3) {
+			System.err.println("Usage: MixinWatcher <targets> <output> <mixin source>...");
+			return;
+		}
+		val sources = Arrays.stream(args).skip(2).map(Paths::get).collect(Collectors.toList());
+		try (MixinWatcher watcher = new MixinWatcher(() -> {
+			val applicator = new MixinApplicator();
+			applicator.setLog(it -> {});
+			sources.forEach(applicator::addSource);
+			return applicator;
+		}, Paths.get(args[0]), Paths.get(args[1]), System.out::println)) {
+			watcher.watch(sources);
+		}
+	}
+
+	/**
+	 * Runs a cycle, then another each time one of the given mixin sources changes. Returns when interrupted or closed.
+	 * <p>
+	 * Directories are watched recursively. For a jar, only its directory is watched, and only events for the jar are used.
+	 *
+	 * @param sources mixin source directories or jars to watch
+	 */
+	public void watch(List<Path> sources) throws IOException, InterruptedException {
+		registerSources(sources);
+		runCycleAndLog();
+		while (true) {
+			WatchKey key;
+			try {
+				key = watchService.take();
+			} catch (ClosedWatchServiceException e) {
+				return;
+			}
+			boolean changed = false;
+			// wait for a build writing several files to finish
+			do {
+				val directory = (Path) key.watchable();
+				for (WatchEvent<?> event : key.pollEvents()) {
+					if (!isRelevant(directory, event))
+						continue;
+					changed = true;
+					if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+						val created = directory.resolve((Path) event.context());
+						if (Files.isDirectory(created))
+							register(created);
+					}
+				}
+				key.reset();
+			} while ((key = watchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null);
+			if (changed)
+				runCycleAndLog();
+		}
+	}
+
+	/**
+	 * @return whether an event in a watched directory could change the mixins. Events were lost if the kind is
+	 * {@link StandardWatchEventKinds#OVERFLOW}, so a cycle must run.
+	 */
+	boolean isRelevant(Path directory, WatchEvent<?> event) {
+		if (event.kind() == StandardWatchEventKinds.OVERFLOW)
+			return true;
+		val jars = watchedJars.get(directory);
+		return jars == null || watchedDirectories.contains(directory) || jars.contains((Path) event.context());
+	}
+
+	void registerSources(List<Path> sources) throws IOException {
+		watchService = FileSystems.getDefault().newWatchService();
+		for (Path source : sources) {
+			if (Files.isDirectory(source)) {
+				register(source);
+				continue;
+			}
+			val directory = source.toAbsolutePath().getParent();
+			if (!watchedJars.containsKey(directory))
+				directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+			watchedJars.computeIfAbsent(directory, k -> new HashSet<>()).add(source.getFileName());
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (watchService != null)
+			watchService.close();
+	}
+
+	private void register(Path directory) throws IOException {
+		try (Stream<Path> stream = Files.walk(directory)) {
+			for (Path path : stream.filter(Files::isDirectory).collect(Collectors.toList())) {
+				watchedDirectories.add(path);
+				path.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+			}
+		}
+	}
+
+	private void runCycleAndLog() {
+		try {
+			runCycle();
+		} catch (Exception e) {
+			// keep the previous fingerprints, so the affected targets are retried after the next change
+			log.accept("Failed to apply mixins: " + e);
+		}
+	}
+
+	/**
+	 * Builds the plan, reusing unchanged mixins from the last cycle, and transforms the targets whose fingerprint changed since then
+	 *
+	 * @return the number of classes written
+	 */
+	int runCycle() {
+		val start = System.nanoTime();
+		val applicator = applicatorFactory.get();
+		applicator.reuseDiscoveries(last);
+		val plan = applicator.getApplicationPlan();
+		val planned = System.nanoTime();
+
+		val current = new HashMap<String, String>();
+		val changed = new LinkedHashMap<String, byte[]>();
+		val untargeted = new ArrayList<String>();
+		for (String name : entryNames) {
+			val target = JarTransformer.getTarget(plan, name);
+			if (target == null) {
+				if (fingerprints.containsKey(name))
+					untargeted.add(name);
+				continue;
+			}
+			val fingerprint = applicator.getTargetFingerprint(target);
+			current.put(name, fingerprint);
+			if (!fingerprint.equals(fingerprints.get(name)))
+				changed.put(name, originals.computeIfAbsent(name, this::read));
+		}
+
+		val transformed = changed.isEmpty() ? Collections.<String, byte[]>emptyMap() : JarTransformer.transformEntries(applicator, targets, changed, new HashSet<>());
+		try {
+			for (Map.Entry<String, byte[]> entry : transformed.entrySet())
+				write(entry.getKey(), entry.getValue());
+			for (String name : untargeted)
+				write(name, originals.computeIfAbsent(name, this::read));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		fingerprints = current;
+		last = applicator;
+
+		val end = System.nanoTime();
+		log.accept("Applied mixins to " + changed.size() + " of " + current.size() + " targets, restored " + untargeted.size() + " in " +
+			TimeUnit.NANOSECONDS.toMillis(end - start) + "ms (plan " + TimeUnit.NANOSECONDS.toMillis(planned - start) + "ms, transform " +
+			TimeUnit.NANOSECONDS.toMillis(end - planned) + "ms)");
+		return transformed.size() + untargeted.size();
+	}
+
+	private void write(String name, byte[] data) throws IOException {
+		val file = output.resolve(name);
+		Files.createDirectories(file.getParent());
+		Files.write(file, data);
+	}
+
+	private byte[] read(String name) {
+		try {
+			if (Files.isDirectory(targets))
+				return Files.readAllBytes(targets.resolve(name));
+			try (ZipFile zip = new ZipFile(targets.toFile()); InputStream in = zip.getInputStream(zip.getEntry(name))) {
+				return ContentHash.readFully(in);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static List<String> listEntries(Path targets) {
+		val names = new ArrayList<String>();
+		try {
+			if (Files.isDirectory(targets)) {
+				try (Stream<Path> stream = Files.walk(targets)) {
+					stream.filter(Files::isRegularFile).forEach(it -> names.add(targets.relativize(it).toString().replace('\\', '/')));
+				}
+			} else {
+				try (ZipFile zip = new ZipFile(targets.toFile())) {
+					Enumeration<? extends ZipEntry> entries = zip.entries();
+					while (entries.hasMoreElements()) {
+						val entry = entries.nextElement();
+						if (!entry.isDirectory())
+							names.add(entry.getName());
+					}
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return names;
+	}
+}
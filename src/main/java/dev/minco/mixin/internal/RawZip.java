@@ -0,0 +1,348 @@
+package dev.minco.mixin.internal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.zip.*;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.val;
+
+/**
+ * Minimal zip reader and writer which copies entries as raw compressed bytes, without inflating them.
+ * <p>
+ * The central directory is read through a memory mapped buffer, and copied entries are moved with {@link FileChannel#transferTo}.
+ * Zip64 archives are not supported, {@link #open(FileChannel)} returns null for them.
+ */
+@RequiredArgsConstructor
+final class RawZip {
+	private static final int LOCAL_HEADER = 0x04034b50;
+	private static final int CENTRAL_HEADER = 0x02014b50;
+	private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+	private static final int ZIP64_END_LOCATOR = 0x07064b50;
+	private static final int DATA_DESCRIPTOR = 0x08074b50;
+	private static final int LOCAL_HEADER_SIZE = 30;
+	private static final int CENTRAL_HEADER_SIZE = 46;
+	private static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+	private static final int FLAG_DATA_DESCRIPTOR = 1 << 3;
+	private static final int FLAG_UTF8 = 1 << 11;
+	private static final long MAX_UINT = 0xFFFFFFFFL;
+	private static final int MAX_USHORT = 0xFFFF;
+
+	private final FileChannel channel;
+	@Getter
+	private final List<Entry> entries;
+	private final byte[] comment;
+
+	/**
+	 * @return the archive, or null if it is a zip64 archive or has data before the first entry
+	 */
+	static RawZip open(FileChannel channel) throws IOException {
+		val size = channel.size();
+		if (size < END_OF_CENTRAL_DIRECTORY_SIZE)
+			return null;
+
+		val tailLength = (int) Math.min(size, END_OF_CENTRAL_DIRECTORY_SIZE + MAX_USHORT);
+		val tailStart = size - tailLength;
+		val tail = map(channel, tailStart, tailLength);
+		int end = -1;
+		for (int i = tailLength - END_OF_CENTRAL_DIRECTORY_SIZE; i >= 0; i--) {
+			if (tail.getInt(i) == END_OF_CENTRAL_DIRECTORY) {
+				end = i;
+				break;
+			}
+		}
+		if (end < 0 || (end >= 20 && tail.getInt(end - 20) == ZIP64_END_LOCATOR))
+			return null;
+
+		val count = ushort(tail, end + 10);
+		val directorySize = uint(tail, end + 12);
+		val directoryOffset = uint(tail, end + 16);
+		if (count == MAX_USHORT || directorySize == MAX_UINT || directoryOffset == MAX_UINT || directoryOffset + directorySize != tailStart + end)
+			return null;
+		val comment = new byte[ushort(tail, end + 20)];
+		((ByteBuffer) tail.position(end + END_OF_CENTRAL_DIRECTORY_SIZE)).get(comment);
+
+		val directory = map(channel, directoryOffset, directorySize);
+		val entries = new ArrayList<Entry>(count);
+		int position = 0;
+		for (int i = 0; i < count; i++) {
+			if (position + CENTRAL_HEADER_SIZE > directorySize || directory.getInt(position) != CENTRAL_HEADER)
+				throw new ZipException("Invalid central directory entry " + i);
+
+			val entry = new Entry();
+			entry.versionMadeBy = ushort(directory, position + 4);
+			entry.versionNeeded = ushort(directory, position + 6);
+			entry.flags = ushort(directory, position + 8);
+			entry.method = ushort(directory, position + 10);
+			entry.dosTime = directory.getInt(position + 12);
+			entry.crc = directory.getInt(position + 16);
+			entry.compressedSize = uint(directory, position + 20);
+			entry.size = uint(directory, position + 24);
+			val nameLength = ushort(directory, position + 28);
+			val extraLength = ushort(directory, position + 30);
+			val commentLength = ushort(directory, position + 32);
+			entry.internalAttributes = ushort(directory, position + 36);
+			entry.externalAttributes = directory.getInt(position + 38);
+			entry.localHeaderOffset = uint(directory, position + 42);
+			if (entry.compressedSize == MAX_UINT || entry.size == MAX_UINT || entry.localHeaderOffset == MAX_UINT)
+				return null;
+
+			directory.position(position + CENTRAL_HEADER_SIZE);
+			val name = new byte[nameLength];
+			directory.get(name);
+			entry.extra = new byte[extraLength];
+			directory.get(entry.extra);
+			entry.comment = new byte[commentLength];
+			directory.get(entry.comment);
+			entry.name = new String(name, StandardCharsets.UTF_8);
+			entries.add(entry);
+			position += CENTRAL_HEADER_SIZE + nameLength + extraLength + commentLength;
+		}
+		return new RawZip(channel, entries, comment);
+	}
+
+	private static MappedByteBuffer map(FileChannel channel, long position, long size) throws IOException {
+		val buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		return buffer;
+	}
+
+	private static int ushort(ByteBuffer buffer, int position) {
+		return buffer.getShort(position) & MAX_USHORT;
+	}
+
+	private static long uint(ByteBuffer buffer, int position) {
+		return buffer.getInt(position) & MAX_UINT;
+	}
+
+	private long getDataOffset(Entry entry) throws IOException {
+		val header = read(entry.localHeaderOffset, LOCAL_HEADER_SIZE);
+		if (header.getInt(0) != LOCAL_HEADER)
+			throw new ZipException("Invalid local header for " + entry.name);
+		return entry.localHeaderOffset + LOCAL_HEADER_SIZE + ushort(header, 26) + ushort(header, 28);
+	}
+
+	private ByteBuffer read(long position, int length) throws IOException {
+		val buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+		while (buffer.hasRemaining())
+			if (channel.read(buffer, position + buffer.position()) < 0)
+				throw new ZipException("Unexpected end of zip at " + position);
+		buffer.flip();
+		return buffer;
+	}
+
+	/**
+	 * @return a writer for a new archive with the same comment as this one
+	 */
+	Writer newWriter(FileChannel out) {
+		return new Writer(out, comment);
+	}
+
+	/**
+	 * @return the uncompressed data of the given entry
+	 */
+	byte[] read(Entry entry) throws IOException {
+		val compressed = read(getDataOffset(entry), (int) entry.compressedSize).array();
+		switch (entry.method) {
+			case ZipEntry.STORED:
+				return compressed;
+			case ZipEntry.DEFLATED:
+				val inflater = new Inflater(true);
+				try {
+					inflater.setInput(compressed);
+					val data = new byte[(int) entry.size];
+					int length = 0;
+					while (length < data.length && !inflater.finished()) {
+						val read = inflater.inflate(data, length, data.length - length);
+						if (read == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+							break;
+						length += read;
+					}
+					if (length != data.length)
+						throw new ZipException("Expected " + data.length + " bytes for " + entry.name + " but got " + length);
+					return data;
+				} catch (DataFormatException e) {
+					throw new ZipException("Invalid data for " + entry.name + ": " + e.getMessage());
+				} finally {
+					inflater.end();
+				}
+			default:
+				throw new ZipException("Unsupported compression method " + entry.method + " for " + entry.name);
+		}
+	}
+
+	/**
+	 * @return offset just after the entry's data and data descriptor, if it has one
+	 */
+	private long getEntryEnd(Entry entry) throws IOException {
+		val end = getDataOffset(entry) + entry.compressedSize;
+		if ((entry.flags & FLAG_DATA_DESCRIPTOR) == 0)
+			return end;
+		return end + (read(end, 4).getInt(0) == DATA_DESCRIPTOR ? 16 : 12);
+	}
+
+	static final class Entry implements Cloneable {
+		@Getter
+		String name;
+		int versionMadeBy;
+		int versionNeeded;
+		int flags;
+		int method;
+		int dosTime;
+		int crc;
+		long compressedSize;
+		long size;
+		int internalAttributes;
+		int externalAttributes;
+		long localHeaderOffset;
+		byte[] extra;
+		byte[] comment;
+
+		boolean isDirectory() {
+			return name.endsWith("/");
+		}
+
+		@Override
+		protected Entry clone() {
+			try {
+				return (Entry) super.clone();
+			} catch (CloneNotSupportedException e) {
+				throw new AssertionError(e);
+			}
+		}
+	}
+
+	/**
+	 * Writes a zip, keeping the metadata of each entry from its source archive
+	 */
+	@RequiredArgsConstructor
+	static final class Writer implements Closeable {
+		private final FileChannel out;
+		private final byte[] comment;
+		private final List<Entry> written = new ArrayList<>();
+
+		/**
+		 * Copies an entry's local header and compressed data without inflating it
+		 */
+		void copy(RawZip zip, Entry entry) throws IOException {
+			val start = entry.localHeaderOffset;
+			val length = zip.getEntryEnd(entry) - start;
+			val copy = entry.clone();
+			copy.localHeaderOffset = out.position();
+			long transferred = 0;
+			while (transferred < length) {
+				val count = zip.channel.transferTo(start + transferred, length - transferred, out);
+				if (count <= 0)
+					throw new ZipException("Unexpected end of zip while copying " + entry.name);
+				transferred += count;
+			}
+			written.add(copy);
+		}
+
+		/**
+		 * Writes new data for an entry, deflating it
+		 */
+		void write(Entry template, byte[] data) throws IOException {
+			val entry = template.clone();
+			val crc = new CRC32();
+			crc.update(data);
+			entry.crc = (int) crc.getValue();
+			entry.size = data.length;
+			entry.method = ZipEntry.DEFLATED;
+			entry.flags = (template.flags & FLAG_UTF8);
+			entry.versionNeeded = Math.max(20, template.versionNeeded);
+
+			val deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+			val compressed = new ByteArrayOutputStream(data.length / 2 + 64);
+			try {
+				deflater.setInput(data);
+				deflater.finish();
+				val buffer = new byte[8192];
+				while (!deflater.finished())
+					compressed.write(buffer, 0, deflater.deflate(buffer));
+			} finally {
+				deflater.end();
+			}
+			entry.compressedSize = compressed.size();
+			entry.localHeaderOffset = out.position();
+
+			val name = entry.name.getBytes(StandardCharsets.UTF_8);
+			val header = ByteBuffer.allocate(LOCAL_HEADER_SIZE + name.length + entry.extra.length).order(ByteOrder.LITTLE_ENDIAN);
+			header.putInt(LOCAL_HEADER)
+				.putShort((short) entry.versionNeeded)
+				.putShort((short) entry.flags)
+				.putShort((short) entry.method)
+				.putInt(entry.dosTime)
+				.putInt(entry.crc)
+				.putInt((int) entry.compressedSize)
+				.putInt((int) entry.size)
+				.putShort((short) name.length)
+				.putShort((short) entry.extra.length)
+				.put(name)
+				.put(entry.extra);
+			header.flip();
+			writeFully(header);
+			writeFully(ByteBuffer.wrap(compressed.toByteArray()));
+			written.add(entry);
+		}
+
+		private void writeFully(ByteBuffer buffer) throws IOException {
+			while (buffer.hasRemaining())
+				out.write(buffer);
+		}
+
+		@Override
+		public void close() throws IOException {
+			val directoryOffset = out.position();
+			for (Entry entry : written) {
+				val name = entry.name.getBytes(StandardCharsets.UTF_8);
+				val header = ByteBuffer.allocate(CENTRAL_HEADER_SIZE + name.length + entry.extra.length + entry.comment.length).order(ByteOrder.LITTLE_ENDIAN);
+				header.putInt(CENTRAL_HEADER)
+					.putShort((short) entry.versionMadeBy)
+					.putShort((short) entry.versionNeeded)
+					.putShort((short) entry.flags)
+					.putShort((short) entry.method)
+					.putInt(entry.dosTime)
+					.putInt(entry.crc)
+					.putInt((int) entry.compressedSize)
+					.putInt((int) entry.size)
+					.putShort((short) name.length)
+					.putShort((short) entry.extra.length)
+					.putShort((short) entry.comment.length)
+					.putShort((short) 0)
+					.putShort((short) entry.internalAttributes)
+					.putInt(entry.externalAttributes)
+					.putInt((int) entry.localHeaderOffset)
+					.put(name)
+					.put(entry.extra)
+					.put(entry.comment);
+				header.flip();
+				writeFully(header);
+			}
+			val directorySize = out.position() - directoryOffset;
+			if (written.size() >= MAX_USHORT || directoryOffset + directorySize >= MAX_UINT)
+				throw new ZipException("Output is too large to write without zip64");
+
+			val end = ByteBuffer.allocate(END_OF_CENTRAL_DIRECTORY_SIZE + comment.length).order(ByteOrder.LITTLE_ENDIAN);
+			end.putInt(END_OF_CENTRAL_DIRECTORY)
+				.putShort((short) 0)
+				.putShort((short) 0)
+				.putShort((short) written.size())
+				.putShort((short) written.size())
+				.putInt((int) directorySize)
+				.putInt((int) directoryOffset)
+				.putShort((short) comment.length)
+				.put(comment);
+			end.flip();
+			writeFully(end);
+		}
+	}
+}
@@ -0,0 +1,88 @@
+package dev.minco.mixin.internal;
+
+import java.util.Collections;
+import java.util.List;
+
+import lombok.Data;
+import lombok.NonNull;
+import lombok.val;
+
+import dev.minco.mixin.Inject;
+
+/**
+ * Result of {@link MixinApplicator#validate(java.nio.file.Path)}: every problem found while resolving mixins against their
+ * targets, and the number of sites matched by each injection. Nothing is transformed or written to produce it.
+ */
+@Data
+public final class ValidationReport {
+	/**
+	 * Targets of discovered mixins which were not found, in plan order
+	 */
+	@NonNull
+	private final List<String> missingTargets;
+	@NonNull
+	private final List<Problem> problems;
+	@NonNull
+	private final List<Injection> injections;
+
+	ValidationReport(List<String> missingTargets, List<Problem> problems, List<Injection> injections) {
+		this.missingTargets = Collections.unmodifiableList(missingTargets);
+		this.problems = Collections.unmodifiableList(problems);
+		this.injections = Collections.unmodifiableList(injections);
+	}
+
+	/**
+	 * @return whether every target was found, every handler resolved, and every injection matched at least one site
+	 */
+	public boolean isValid() {
+		return missingTargets.isEmpty() && problems.isEmpty() && injections.stream().allMatch(it -> it.sites > 0);
+	}
+
+	@Override
+	public String toString() {
+		val result = new StringBuilder(isValid() ? "Mixins are valid" : "Mixins are invalid");
+		for (String target : missingTargets)
+			result.append("\n\tMissing target ").append(target);
+		for (Problem problem : problems)
+			result.append("\n\t").append(problem);
+		for (Injection injection : injections)
+			result.append("\n\t").append(injection);
+		return result.toString();
+	}
+
+	/**
+	 * A handler which could not be resolved against its target
+	 */
+	@Data
+	public static final class Problem {
+		private final String target;
+		/**
+		 * Description of the annotated mixin member, as used in {@link MixinError} messages
+		 */
+		private final String handler;
+		private final String message;
+
+		@Override
+		public String toString() {
+			return "Problem in " + target + " with " + handler + ": " + message;
+		}
+	}
+
+	/**
+	 * The sites matched by one {@link Inject}
+	 */
+	@Data
+	public static final class Injection {
+		private final String target;
+		private final String targetMethod;
+		private final String mixin;
+		private final String injectable;
+		private final Inject inject;
+		private final int sites;
+
+		@Override
+		public String toString() {
+			return sites + " sites in " + target + '.' + targetMethod + " for " + injectable + " in " + mixin + " with " + inject;
+		}
+	}
+}
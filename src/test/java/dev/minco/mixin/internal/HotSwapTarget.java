@@ -0,0 +1,7 @@
+package dev.minco.mixin.internal;
+
+public class HotSwapTarget {
+	public String value() {
+		return "original";
+	}
+}
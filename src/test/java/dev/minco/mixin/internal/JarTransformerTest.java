@@ -0,0 +1,200 @@
+package dev.minco.mixin.internal;
+
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import lombok.val;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import dev.minco.javatransformer.api.JavaTransformer;
+import dev.minco.mixin.internal.mixinsource.PackageReference;
+
+public class JarTransformerTest {
+	private static final String TARGET_ENTRY = "dev/minco/mixin/internal/MixinTarget.class";
+	private static final String RESOURCE_ENTRY = "resource.txt";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Path makeInputJar() throws Exception {
+		val jar = folder.newFile("input.jar").toPath();
+		try (ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(jar))) {
+			zos.putNextEntry(new ZipEntry(RESOURCE_ENTRY));
+			zos.write("not a class".getBytes("UTF-8"));
+			zos.closeEntry();
+			zos.putNextEntry(new ZipEntry(TARGET_ENTRY));
+			zos.write(Files.readAllBytes(JavaTransformer.pathFromClass(MixinTarget.class).resolve(TARGET_ENTRY)));
+			zos.closeEntry();
+		}
+		return jar;
+	}
+
+	private static byte[] read(Path jar, String entry) throws Exception {
+		try (ZipFile zip = new ZipFile(jar.toFile())) {
+			return ContentHash.readFully(zip.getInputStream(zip.getEntry(entry)));
+		}
+	}
+
+	@Test
+	public void testCachedTransformMatchesUncached() throws Exception {
+		val input = makeInputJar();
+		val cacheDirectory = folder.newFolder("cache").toPath();
+
+		val first = folder.getRoot().toPath().resolve("first.jar");
+		val applicator = new MixinApplicator();
+		applicator.addSource(PackageReference.class);
+		applicator.setCacheDirectory(cacheDirectory);
+		applicator.transform(input, first);
+		Assert.assertTrue("transformed class should be cached", Files.isDirectory(cacheDirectory.resolve("classes")));
+
+		val second = folder.getRoot().toPath().resolve("second.jar");
+		val cachedApplicator = new MixinApplicator();
+		cachedApplicator.addSource(PackageReference.class);
+		cachedApplicator.setCacheDirectory(cacheDirectory);
+		cachedApplicator.transform(input, second);
+
+		Assert.assertArrayEquals(read(first, TARGET_ENTRY), read(second, TARGET_ENTRY));
+		Assert.assertArrayEquals(read(input, RESOURCE_ENTRY), read(second, RESOURCE_ENTRY));
+		Assert.assertFalse("target should be transformed", Arrays.equals(read(input, TARGET_ENTRY), read(second, TARGET_ENTRY)));
+	}
+
+	@Test
+	public void testCacheCleanupDeletesUnusedEntries() throws Exception {
+		val cacheDirectory = folder.newFolder("cache").toPath();
+		val cache = new ClassOutputCache(cacheDirectory.resolve("classes"));
+		cache.put("aa01", new byte[]{1});
+		cache.put("aa02", new byte[]{2});
+		val old = FileTime.fromMillis(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(CacheCleanup.MAX_UNUSED_DAYS + 1));
+		Files.setLastModifiedTime(cacheDirectory.resolve("classes/aa/aa01"), old);
+		Files.setLastModifiedTime(cacheDirectory.resolve("classes/aa/aa02"), old);
+
+		Assert.assertArrayEquals(new byte[]{2}, cache.get("aa02"));
+		CacheCleanup.cleanIfDue(cacheDirectory);
+
+		Assert.assertNull("unused entry should be deleted", cache.get("aa01"));
+		Assert.assertArrayEquals("used entry should be kept", new byte[]{2}, cache.get("aa02"));
+	}
+
+	@Test
+	public void testUntargetedEntriesAreCopiedRaw() throws Exception {
+		val input = makeInputJar();
+		val output = folder.getRoot().toPath().resolve("output.jar");
+		val applicator = new MixinApplicator();
+		applicator.addSource(PackageReference.class);
+		applicator.transform(input, output);
+
+		try (ZipFile in = new ZipFile(input.toFile()); ZipFile out = new ZipFile(output.toFile())) {
+			val original = in.getEntry(RESOURCE_ENTRY);
+			val copied = out.getEntry(RESOURCE_ENTRY);
+			Assert.assertEquals(original.getCrc(), copied.getCrc());
+			Assert.assertEquals(original.getCompressedSize(), copied.getCompressedSize());
+			Assert.assertEquals(original.getTime(), copied.getTime());
+			Assert.assertEquals(in.size(), out.size());
+		}
+		Assert.assertArrayEquals(read(input, RESOURCE_ENTRY), read(output, RESOURCE_ENTRY));
+		Assert.assertFalse("target should be transformed", Arrays.equals(read(input, TARGET_ENTRY), read(output, TARGET_ENTRY)));
+	}
+
+	@Test
+	public void testOutputIsReproducible() throws Exception {
+		val input = makeInputJar();
+		val first = folder.getRoot().toPath().resolve("first.jar");
+		val second = folder.getRoot().toPath().resolve("second.jar");
+		val applicator = new MixinApplicator();
+		applicator.addSource(PackageReference.class);
+		applicator.transform(input, first);
+		// the time of the input file itself must not end up in the output
+		Files.setLastModifiedTime(input, FileTime.fromMillis(0));
+		applicator.transform(input, second);
+
+		Assert.assertArrayEquals(Files.readAllBytes(first), Files.readAllBytes(second));
+		assertEntryTimesKept(input, second);
+	}
+
+	@Test
+	public void testZipFileFallbackKeepsEntryTimes() throws Exception {
+		val input = makeInputJar();
+		val output = folder.getRoot().toPath().resolve("output.jar");
+		val applicator = new MixinApplicator();
+		applicator.addSource(PackageReference.class);
+		new JarTransformer(applicator, null).transformWithZipFile(input, output);
+
+		Assert.assertFalse("target should be transformed", Arrays.equals(read(input, TARGET_ENTRY), read(output, TARGET_ENTRY)));
+		assertEntryTimesKept(input, output);
+	}
+
+	private static void assertEntryTimesKept(Path input, Path output) throws Exception {
+		try (ZipFile in = new ZipFile(input.toFile()); ZipFile out = new ZipFile(output.toFile())) {
+			for (String name : Arrays.asList(RESOURCE_ENTRY, TARGET_ENTRY))
+				Assert.assertEquals(name, in.getEntry(name).getTime(), out.getEntry(name).getTime());
+		}
+	}
+
+	@Test
+	public void testInputFingerprintOnlyDependsOnTargets() throws Exception {
+		val input = makeInputJar();
+		val untargeted = folder.newFile("untargeted.jar").toPath();
+		try (ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(untargeted))) {
+			zos.putNextEntry(new ZipEntry(RESOURCE_ENTRY));
+			zos.closeEntry();
+		}
+		val applicator = new MixinApplicator();
+		applicator.addSource(PackageReference.class);
+		val frozen = applicator.freeze();
+		val empty = new MixinApplicator().freeze();
+
+		Assert.assertEquals(frozen.getInputFingerprint(input), applicator.freeze().getInputFingerprint(input));
+		Assert.assertNotEquals(frozen.getInputFingerprint(input), frozen.getInputFingerprint(untargeted));
+		Assert.assertNotEquals(frozen.getInputFingerprint(input), empty.getInputFingerprint(input));
+		Assert.assertEquals(frozen.getInputFingerprint(untargeted), empty.getInputFingerprint(untargeted));
+	}
+
+	@Test
+	public void testTransformAllMatchesSeparateTransforms() throws Exception {
+		val input = makeInputJar();
+		val outputs = new LinkedHashMap<FrozenMixinApplicator, Path>();
+		for (ApplicationType type : ApplicationType.values()) {
+			val applicator = new MixinApplicator();
+			applicator.addSource(PackageReference.class);
+			applicator.setApplicationType(type);
+			outputs.put(applicator.freeze(), folder.getRoot().toPath().resolve(type + "-all.jar"));
+		}
+		FrozenMixinApplicator.transformAll(input, outputs);
+
+		for (Map.Entry<FrozenMixinApplicator, Path> entry : outputs.entrySet()) {
+			val separate = folder.getRoot().toPath().resolve(entry.getValue().getFileName() + "-separate.jar");
+			entry.getKey().transform(input, separate);
+			Assert.assertArrayEquals(Files.readAllBytes(separate), Files.readAllBytes(entry.getValue()));
+		}
+	}
+
+	@Test
+	public void testFrozenApplicatorTransformsConcurrently() throws Exception {
+		val input = makeInputJar();
+		val applicator = new MixinApplicator();
+		applicator.addSource(PackageReference.class);
+		val frozen = applicator.freeze();
+
+		val outputs = new ArrayList<Path>();
+		for (int i = 0; i < 8; i++)
+			outputs.add(folder.getRoot().toPath().resolve("output" + i + ".jar"));
+		outputs.parallelStream().forEach(output -> frozen.transform(input, output));
+
+		val expected = read(outputs.get(0), TARGET_ENTRY);
+		Assert.assertFalse("target should be transformed", Arrays.equals(read(input, TARGET_ENTRY), expected));
+		for (Path output : outputs)
+			Assert.assertArrayEquals(expected, read(output, TARGET_ENTRY));
+	}
+}
@@ -1,16 +1,43 @@
 package dev.minco.mixin.internal;
 
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import lombok.SneakyThrows;
 import lombok.val;
 
 import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
 
+import dev.minco.javatransformer.api.AccessFlags;
+import dev.minco.javatransformer.api.JavaTransformer;
+import dev.minco.mixin.internal.invalidmixins.names.InvalidNamesMixin;
+import dev.minco.mixin.internal.invalidmixins.overwrite.DoubleOverwriteMixin;
+import dev.minco.mixin.internal.invalidmixins.unusedhelper.UnusedHelperMixin;
+import dev.minco.mixin.internal.invalidmixins.validation.UnnamedValueMixin;
+import dev.minco.mixin.internal.mixinsource.MixinSource;
 import dev.minco.mixin.internal.mixinsource.PackageReference;
 
 public class MixinApplicatorTest {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
 	@Test
 	public void testGetMixinTransformer() throws Exception {
 		val applicator = new MixinApplicator();
@@ -39,6 +66,373 @@ public class MixinApplicatorTest {
 		Assert.assertTrue("Must have at least one mixin transformer registered", transformer.getClassTransformers().size() != 0);
 	}
 
+	@Test
+	public void testParallelDiscoveryMatchesSequential() throws Exception {
+		val sequential = new MixinApplicator();
+		sequential.addSource(PackageReference.class);
+		sequential.addSource(Paths.get("src/test/java"), "dev.minco.mixin.internal.mixinsource");
+		sequential.getMixinTransformer();
+
+		val parallel = new MixinApplicator();
+		parallel.setParallelDiscovery(true);
+		parallel.addSource(PackageReference.class);
+		parallel.addSource(Paths.get("src/test/java"), "dev.minco.mixin.internal.mixinsource");
+		parallel.getMixinTransformer();
+
+		Assert.assertEquals(sequential.getTransformers().toString(), parallel.getTransformers().toString());
+		Assert.assertEquals(sequential.getApplicationPlan().toString(), parallel.getApplicationPlan().toString());
+	}
+
+	@Test
+	public void testRepeatedParallelDiscoveryMatchesSequential() throws Exception {
+		val sequential = new MixinApplicator();
+		sequential.addSource(PackageReference.class);
+		sequential.addSource(Paths.get("src/test/java"), "dev.minco.mixin.internal.mixinsource");
+		val expected = sequential.getApplicationPlan().toString();
+
+		for (int i = 0; i < 20; i++) {
+			val parallel = new MixinApplicator();
+			parallel.setParallelDiscovery(true);
+			parallel.addSource(PackageReference.class);
+			parallel.addSource(Paths.get("src/test/java"), "dev.minco.mixin.internal.mixinsource");
+			Assert.assertEquals("run " + i, expected, parallel.getApplicationPlan().toString());
+		}
+	}
+
+	@Test
+	public void testApplicationPlanMergesMixinsByTarget() throws Exception {
+		val single = new MixinApplicator();
+		single.addSource(PackageReference.class);
+		val singlePlan = single.getApplicationPlan();
+
+		val applicator = new MixinApplicator();
+		applicator.addSource(PackageReference.class);
+		applicator.addSource(Paths.get("src/test/java"), "dev.minco.mixin.internal.mixinsource");
+		val plan = applicator.getApplicationPlan();
+
+		Assert.assertEquals(1, plan.getTargetCount());
+		Assert.assertTrue(plan.isTarget(MixinTarget.class.getName()));
+		Assert.assertEquals(singlePlan.getHandlerCount(MixinTarget.class.getName()) * 2, plan.getHandlerCount(MixinTarget.class.getName()));
+		Assert.assertEquals(1, applicator.getMixinTransformer().getClassTransformers().size());
+	}
+
+	@Test
+	public void testTargetFingerprintIncludesMixinsAndClassPath() throws Exception {
+		val target = MixinTarget.class.getName();
+		val applicator = new MixinApplicator();
+		applicator.addSource(PackageReference.class);
+		val fingerprint = applicator.getTargetFingerprint(target);
+		Assert.assertNotNull(applicator.getApplicationPlan().getMixinHash(MixinSource.class.getName()));
+		Assert.assertEquals(fingerprint, applicator.getTargetFingerprint(target));
+
+		val library = folder.newFolder("library").toPath();
+		Files.write(library.resolve("Library.class"), new byte[]{1});
+		Assert.assertTrue(applicator.addClassPath(library));
+		val withLibrary = applicator.getTargetFingerprint(target);
+		Assert.assertNotEquals(fingerprint, withLibrary);
+
+		val other = new MixinApplicator();
+		other.addSource(PackageReference.class);
+		Files.write(library.resolve("Library.class"), new byte[]{2});
+		Assert.assertTrue(other.addClassPath(library));
+		Assert.assertNotEquals(withLibrary, other.getTargetFingerprint(target));
+	}
+
+	@Test
+	public void testNestedClassFileCandidates() {
+		Assert.assertEquals(Arrays.asList("a/Outer/Inner.class", "a/Outer/Inner.java", "a/Outer$Inner.class", "a/Outer.java", "a$Outer$Inner.class", "a.java"), ContentHash.fileCandidates("a.Outer.Inner"));
+	}
+
+	@Test
+	public void testListenerReceivesPhases() throws Exception {
+		val plans = new AtomicInteger();
+		val targets = new ArrayList<String>();
+		val applicator = new MixinApplicator();
+		applicator.setFailOnInjectionError(false);
+		applicator.setListener(new MixinApplicationListener() {
+			@Override
+			public void planBuilt(ApplicationPlan plan, long nanos) {
+				plans.incrementAndGet();
+			}
+
+			@Override
+			public synchronized void targetTransformed(String target, long nanos) {
+				targets.add(target);
+			}
+		});
+		applicator.addSource(PackageReference.class);
+		applicator.getMixinTransformer().load(Paths.get("src/test/java"));
+
+		Assert.assertEquals(1, plans.get());
+		Assert.assertEquals(Collections.singletonList(MixinTarget.class.getName()), targets);
+	}
+
+	@Test
+	public void testTransformClassOnlyTransformsTargets() throws Exception {
+		val applicator = new MixinApplicator();
+		applicator.addSource(PackageReference.class);
+		val classes = JavaTransformer.pathFromClass(MixinTarget.class);
+
+		val targetName = MixinTarget.class.getName().replace('.', '/');
+		val target = Files.readAllBytes(classes.resolve(targetName + ".class"));
+		val transformed = applicator.transformClass(targetName, target, classes);
+		Assert.assertNotNull(transformed);
+		Assert.assertFalse("target should be transformed", Arrays.equals(target, transformed));
+
+		val otherName = MixinApplicatorTest.class.getName().replace('.', '/');
+		Assert.assertNull(applicator.transformClass(otherName, Files.readAllBytes(classes.resolve(otherName + ".class")), classes));
+	}
+
+	@Test
+	public void testLazyMethodBodiesRestoreUntouchedMethods() throws Exception {
+		val applicator = new MixinApplicator();
+		applicator.addSource(PackageReference.class);
+		applicator.setLazyMethodBodies(true);
+		val classes = JavaTransformer.pathFromClass(MixinTarget.class);
+		val targetName = MixinTarget.class.getName().replace('.', '/');
+		val original = Files.readAllBytes(classes.resolve(targetName + ".class"));
+
+		// boolMethodCallTarget, matchCall and record are not named by MixinSource
+		val touched = applicator.getApplicationPlan().getMethodNames(MixinTarget.class.getName());
+		Assert.assertEquals(3, LazyMethodBodies.strip(original, touched).getStubbedCount());
+
+		val transformed = applicator.transformClass(targetName, original, classes);
+		Class<?> clazz = new ClassLoader(MixinApplicatorTest.class.getClassLoader()) {
+			Class<?> define() {
+				return defineClass(MixinTarget.class.getName(), transformed, 0, transformed.length);
+			}
+		}.define();
+		val target = clazz.newInstance();
+		Assert.assertEquals("mixin applied", target.toString());
+		// matchCall still throws if its stub was not replaced with the original body
+		clazz.getMethod("matcherInjectionTest").invoke(target);
+		Assert.assertEquals("1x2x1x1x1", clazz.getField("calls").get(target).toString());
+	}
+
+	@Test
+	public void testProvidedHandlersRunInSortIndexOrder() throws Exception {
+		// the provider is only registered in its own class loader, so other tests run without its handlers
+		val urls = new ArrayList<URL>();
+		urls.add(getClass().getResource("/handler-provider/"));
+		for (String entry : System.getProperty("java.class.path").split(File.pathSeparator))
+			urls.add(Paths.get(entry).toUri().toURL());
+
+		try (URLClassLoader loader = new MixinFirstClassLoader(urls.toArray(new URL[0]), getClass().getClassLoader())) {
+			val events = loader.loadClass(OrderRecordingHandlerProvider.class.getName()).getMethod("run").invoke(null);
+			Assert.assertEquals(Arrays.asList("log", "early addTest=false", "late addTest=true"), events);
+		}
+	}
+
+	/**
+	 * Loads its own copy of this library's classes, so {@link MixinApplicator} finds the handler providers on its class path
+	 */
+	private static class MixinFirstClassLoader extends URLClassLoader {
+		MixinFirstClassLoader(URL[] urls, ClassLoader parent) {
+			super(urls, parent);
+		}
+
+		@Override
+		protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+			if (!name.startsWith("dev.minco.mixin."))
+				return super.loadClass(name, resolve);
+
+			synchronized (getClassLoadingLock(name)) {
+				Class<?> clazz = findLoadedClass(name);
+				if (clazz == null)
+					clazz = findClass(name);
+				if (resolve)
+					resolveClass(clazz);
+				return clazz;
+			}
+		}
+	}
+
+	@Test
+	public void testHelperIsOnlyAddedForInsertedInjections() throws Exception {
+		val applicator = new MixinApplicator();
+		applicator.setFailOnInjectionError(false);
+		applicator.addSource(UnusedHelperMixin.class);
+		val classes = JavaTransformer.pathFromClass(MixinTarget.class);
+		val name = MixinTarget.class.getName().replace('.', '/');
+		val transformed = applicator.transformClass(name, Files.readAllBytes(classes.resolve(name + ".class")), classes);
+
+		val methods = new ArrayList<String>();
+		new ClassReader(transformed).accept(new ClassVisitor(Opcodes.ASM7) {
+			@Override
+			public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+				methods.add(name);
+				return null;
+			}
+		}, ClassReader.SKIP_CODE);
+		Assert.assertFalse(methods.toString(), methods.contains("recordUnusedInjection"));
+	}
+
+	@Test
+	public void testTwoOverwritesOfOneSiteFail() throws Exception {
+		val applicator = new MixinApplicator();
+		applicator.addSource(DoubleOverwriteMixin.class);
+		val classes = JavaTransformer.pathFromClass(MixinTarget.class);
+		val targetName = MixinTarget.class.getName().replace('.', '/');
+		val target = Files.readAllBytes(classes.resolve(targetName + ".class"));
+
+		assertMixinError("Multiple injections overwrite", () -> applicator.transformClass(targetName, target, classes));
+	}
+
+	@Test
+	public void testInvalidInjectableNamesAreReportedTogether() throws Exception {
+		val applicator = new MixinApplicator();
+		applicator.addSource(InvalidNamesMixin.class);
+
+		val error = assertMixinError("Invalid injectables in " + InvalidNamesMixin.class.getName(), applicator::getMixinTransformer);
+		Assert.assertTrue(error.getMessage(), error.getMessage().contains("Duplicate names: [first, second]"));
+		Assert.assertTrue(error.getMessage(), error.getMessage().contains("Missing names referenced by @Inject: [missing]"));
+	}
+
+	/**
+	 * Checks that the action throws, with a {@link MixinError} containing the given message somewhere in the cause chain
+	 */
+	private static MixinError assertMixinError(String message, Runnable action) {
+		try {
+			action.run();
+		} catch (Throwable t) {
+			for (Throwable cause = t; cause != null; cause = cause.getCause())
+				if (cause instanceof MixinError && cause.getMessage().contains(message))
+					return (MixinError) cause;
+			throw new AssertionError("Expected MixinError containing '" + message + "'", t);
+		}
+		throw new AssertionError("Expected MixinError containing '" + message + "'");
+	}
+
+	private Path writeIndexedJar() throws Exception {
+		val mixinEntry = "dev/minco/mixin/internal/mixinsource/MixinSource.class";
+		val jar = folder.newFile("mixins.jar").toPath();
+		try (ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(jar))) {
+			zos.putNextEntry(new ZipEntry(MixinIndex.PATH));
+			zos.write((MixinIndex.FORMAT + "\nmixin dev.minco.mixin.internal.mixinsource.MixinSource " + MixinTarget.class.getName() + "\n").getBytes(StandardCharsets.UTF_8));
+			zos.putNextEntry(new ZipEntry(mixinEntry));
+			zos.write(Files.readAllBytes(JavaTransformer.pathFromClass(PackageReference.class).resolve(mixinEntry)));
+			// would fail to parse if the whole jar was scanned
+			zos.putNextEntry(new ZipEntry("dev/minco/mixin/internal/mixinsource/NotAClass.class"));
+			zos.write(new byte[]{1, 2, 3});
+			zos.closeEntry();
+		}
+		return jar;
+	}
+
+	@Test
+	public void testMixinIndexLimitsParsing() throws Exception {
+		val applicator = new MixinApplicator();
+		applicator.addSource(writeIndexedJar());
+		val plan = applicator.getApplicationPlan();
+		Assert.assertTrue(plan.isTarget(MixinTarget.class.getName()));
+		Assert.assertEquals(Collections.singletonList("dev.minco.mixin.internal.mixinsource.MixinSource"), plan.getMixins(MixinTarget.class.getName()));
+	}
+
+	@Test
+	public void testMixinIndexReportsClassesWhichAreNotMixins() throws Exception {
+		val applicator = new MixinApplicator();
+		applicator.setNoMixinIsError(true);
+		applicator.addSource(writeIndexedJar());
+		try {
+			applicator.getApplicationPlan();
+			Assert.fail("Expected the unindexed class to be reported");
+		} catch (RuntimeException e) {
+			Assert.assertEquals("Class dev.minco.mixin.internal.mixinsource.NotAClass is not an @Mixin", e.getMessage());
+		}
+	}
+
+	@Test
+	public void testSourceCacheSkipsRediscoveryUntilSourceChanges() throws Exception {
+		val packagePath = "dev/minco/mixin/internal/mixinsource";
+		val source = folder.newFolder("source").toPath();
+		Files.createDirectories(source.resolve(packagePath));
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(JavaTransformer.pathFromClass(PackageReference.class).resolve(packagePath), "*.class")) {
+			for (Path file : files)
+				Files.copy(file, source.resolve(packagePath).resolve(file.getFileName().toString()));
+		}
+		val cacheDirectory = folder.newFolder("cache").toPath();
+		val cacheHit = "Using cached mixin list for " + source;
+
+		Assert.assertFalse(discover(source, cacheDirectory).contains(cacheHit));
+		Assert.assertTrue(discover(source, cacheDirectory).contains(cacheHit));
+
+		// changing one class file changes the source's hash, so the source is discovered again
+		val modified = folder.newFolder("modified").toPath();
+		val transformer = new JavaTransformer();
+		transformer.addTransformer(it -> {
+			if (it.getName().equals(PackageReference.class.getName()))
+				it.accessFlags(f -> f.without(AccessFlags.ACC_FINAL));
+		});
+		transformer.transform(source, modified);
+		val entry = packagePath + "/PackageReference.class";
+		Assert.assertFalse(Arrays.equals(Files.readAllBytes(source.resolve(entry)), Files.readAllBytes(modified.resolve(entry))));
+		Files.copy(modified.resolve(entry), source.resolve(entry), StandardCopyOption.REPLACE_EXISTING);
+
+		Assert.assertFalse(discover(source, cacheDirectory).contains(cacheHit));
+		Assert.assertTrue(discover(source, cacheDirectory).contains(cacheHit));
+	}
+
+	/**
+	 * Discovers mixins in the given source with a new applicator
+	 *
+	 * @return the messages logged by the applicator
+	 */
+	private static List<String> discover(Path source, Path cacheDirectory) {
+		val log = new ArrayList<String>();
+		val applicator = new MixinApplicator();
+		applicator.setCacheDirectory(cacheDirectory);
+		applicator.setLog(log::add);
+		applicator.addSource(source, "dev.minco.mixin.internal.mixinsource");
+		Assert.assertEquals(Collections.singletonList("dev.minco.mixin.internal.mixinsource.MixinSource"), applicator.getApplicationPlan().getMixins(MixinTarget.class.getName()));
+		return log;
+	}
+
+	@Test
+	public void testValidateFindsInjectionSites() throws Exception {
+		val applicator = new MixinApplicator();
+		applicator.addSource(PackageReference.class);
+		val report = applicator.validate(JavaTransformer.pathFromClass(MixinTarget.class));
+
+		Assert.assertEquals(Collections.emptyList(), report.getMissingTargets());
+		Assert.assertEquals(Collections.emptyList(), report.getProblems());
+		val injection = findInjection(report, "voidInjectionTest");
+		Assert.assertEquals(MixinTarget.class.getName(), injection.getTarget());
+		Assert.assertEquals("voidInjectableTest", injection.getInjectable());
+		Assert.assertTrue(report.toString(), injection.getSites() > 0);
+		val outOfLine = findInjection(report, "outOfLineInjectionTest");
+		Assert.assertEquals("outOfLineInjectableTest", outOfLine.getInjectable());
+		Assert.assertEquals(report.toString(), 2, outOfLine.getSites());
+		Assert.assertEquals(report.toString(), 4, findInjection(report, "matcherInjectionTest").getSites());
+		Assert.assertEquals(report.toString(), 2, findInjection(report, "constantMatcherInjectionTest").getSites());
+		Assert.assertTrue(report.isValid());
+	}
+
+	private static ValidationReport.Injection findInjection(ValidationReport report, String targetMethod) {
+		return report.getInjections().stream().filter(it -> it.getTargetMethod().contains(targetMethod + '(')).findFirst()
+			.orElseThrow(() -> new AssertionError("No injection into " + targetMethod + " in " + report));
+	}
+
+	@Test
+	public void testValidateReportsMissingTargets() throws Exception {
+		val applicator = new MixinApplicator();
+		applicator.addSource(PackageReference.class);
+		val report = applicator.validate(folder.newFolder("empty").toPath());
+
+		Assert.assertEquals(Collections.singletonList(MixinTarget.class.getName()), report.getMissingTargets());
+		Assert.assertFalse(report.isValid());
+	}
+
+	@Test
+	public void testValidateReportsErrorsFromMatching() throws Exception {
+		val applicator = new MixinApplicator();
+		applicator.addSource(UnnamedValueMixin.class);
+		val report = applicator.validate(JavaTransformer.pathFromClass(MixinTarget.class));
+
+		Assert.assertEquals(report.toString(), 1, report.getProblems().size());
+		Assert.assertTrue(report.toString(), report.getProblems().get(0).getHandler().contains("orderInjectionTest"));
+		Assert.assertFalse(report.isValid());
+	}
+
 	@Test
 	public void testSourcesShouldBeEmptyAfterNewCreated() throws Exception {
 		new MixinApplicator().addSource("dev.minco.mixin.internal.mixinsource");
@@ -0,0 +1,153 @@
+package dev.minco.mixin.internal;
+
+import java.io.IOException;
+import java.lang.instrument.ClassDefinition;
+import java.lang.instrument.Instrumentation;
+import java.lang.reflect.Proxy;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import lombok.val;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import dev.minco.javatransformer.api.JavaTransformer;
+import dev.minco.mixin.internal.hotswapmixins.HotSwapTargetMixin;
+import dev.minco.mixin.internal.mixinsource.PackageReference;
+
+public class MixinHotSwapperTest {
+	private static String internalName(Class<?> clazz) {
+		return clazz.getName().replace('.', '/');
+	}
+
+	private static byte[] readClass(Class<?> clazz) throws IOException {
+		return Files.readAllBytes(JavaTransformer.pathFromClass(clazz).resolve(internalName(clazz) + ".class"));
+	}
+
+	private static Instrumentation stubInstrumentation(List<ClassDefinition> redefinitions, Class<?>... loaded) {
+		return stubInstrumentation(redefinitions, null, loaded);
+	}
+
+	/**
+	 * @param redefineError thrown by redefineClasses, or null to record the redefinitions
+	 */
+	private static Instrumentation stubInstrumentation(List<ClassDefinition> redefinitions, Throwable redefineError, Class<?>... loaded) {
+		return (Instrumentation) Proxy.newProxyInstance(MixinHotSwapperTest.class.getClassLoader(), new Class<?>[]{Instrumentation.class}, (proxy, method, args) -> {
+			switch (method.getName()) {
+				case "isRedefineClassesSupported":
+					return true;
+				case "getAllLoadedClasses":
+					return loaded;
+				case "redefineClasses":
+					if (redefineError != null)
+						throw redefineError;
+					redefinitions.addAll(Arrays.asList((ClassDefinition[]) args[0]));
+					return null;
+				default:
+					throw new UnsupportedOperationException(method.getName());
+			}
+		});
+	}
+
+	@Test
+	public void testSchemaDifference() throws Exception {
+		val classes = JavaTransformer.pathFromClass(MixinTarget.class);
+		val name = internalName(MixinTarget.class);
+		val original = readClass(MixinTarget.class);
+		Assert.assertNull(MixinHotSwapper.schemaDifference(original, original));
+
+		val applicator = new MixinApplicator();
+		applicator.addSource(PackageReference.class);
+		val transformed = applicator.transformClass(name, original, classes);
+		// MixinSource adds a method, which can't be redefined
+		val difference = MixinHotSwapper.schemaDifference(original, transformed);
+		Assert.assertNotNull(difference);
+		Assert.assertTrue(difference, difference.contains("addTest"));
+	}
+
+	@Test
+	public void testSwapRedefinesNothingIfAnyClassChangesSchema() throws Exception {
+		val redefinitions = new ArrayList<ClassDefinition>();
+		val hotSwapper = new MixinHotSwapper(stubInstrumentation(redefinitions, MixinTarget.class, HotSwapTarget.class));
+		for (Class<?> clazz : Arrays.asList(MixinTarget.class, HotSwapTarget.class)) {
+			val original = readClass(clazz);
+			hotSwapper.record(clazz.getClassLoader(), internalName(clazz), original, original, JavaTransformer.pathFromClass(clazz), null);
+		}
+
+		val applicator = new MixinApplicator();
+		applicator.addSource(PackageReference.class);
+		applicator.addSource(HotSwapTargetMixin.class);
+		try {
+			hotSwapper.swap(applicator);
+			Assert.fail("Expected MixinError");
+		} catch (MixinError e) {
+			Assert.assertTrue(e.getMessage(), e.getMessage().contains(internalName(MixinTarget.class)));
+			// HotSwapTarget only changes a method body, but isn't redefined either
+			Assert.assertFalse(e.getMessage(), e.getMessage().contains(internalName(HotSwapTarget.class)));
+		}
+		Assert.assertEquals(Collections.emptyList(), redefinitions);
+	}
+
+	@Test
+	public void testSwapRestoresUntargetedClasses() throws Exception {
+		val redefinitions = new ArrayList<ClassDefinition>();
+		val hotSwapper = new MixinHotSwapper(stubInstrumentation(redefinitions, HotSwapTarget.class));
+		val original = readClass(HotSwapTarget.class);
+		hotSwapper.record(HotSwapTarget.class.getClassLoader(), internalName(HotSwapTarget.class), original, original, JavaTransformer.pathFromClass(HotSwapTarget.class), null);
+
+		val applicator = new MixinApplicator();
+		applicator.addSource(HotSwapTargetMixin.class);
+		Assert.assertEquals(Collections.singletonList(HotSwapTarget.class), hotSwapper.swap(applicator));
+		Assert.assertEquals(1, redefinitions.size());
+		Assert.assertFalse(Arrays.equals(original, redefinitions.get(0).getDefinitionClassFile()));
+
+		// HotSwapTarget is no longer targeted, so it goes back to its original bytes
+		redefinitions.clear();
+		val untargeted = new MixinApplicator();
+		untargeted.addSource(PackageReference.class);
+		Assert.assertEquals(Collections.singletonList(HotSwapTarget.class), hotSwapper.swap(untargeted));
+		Assert.assertEquals(1, redefinitions.size());
+		Assert.assertArrayEquals(original, redefinitions.get(0).getDefinitionClassFile());
+	}
+
+	@Test
+	public void testRedefinitionErrorsAreReported() throws Exception {
+		val hotSwapper = new MixinHotSwapper(stubInstrumentation(new ArrayList<>(), new VerifyError("bad stack map"), HotSwapTarget.class));
+		val original = readClass(HotSwapTarget.class);
+		hotSwapper.record(HotSwapTarget.class.getClassLoader(), internalName(HotSwapTarget.class), original, original, JavaTransformer.pathFromClass(HotSwapTarget.class), null);
+
+		val applicator = new MixinApplicator();
+		applicator.addSource(HotSwapTargetMixin.class);
+		try {
+			hotSwapper.swap(applicator);
+			Assert.fail("Expected MixinError");
+		} catch (MixinError e) {
+			Assert.assertTrue(e.getCause() instanceof VerifyError);
+		}
+	}
+
+	@Test
+	public void testClassesAreRecordedPerLoader() throws Exception {
+		val redefinitions = new ArrayList<ClassDefinition>();
+		val hotSwapper = new MixinHotSwapper(stubInstrumentation(redefinitions, HotSwapTarget.class));
+		val original = readClass(HotSwapTarget.class);
+		val classPath = JavaTransformer.pathFromClass(HotSwapTarget.class);
+		hotSwapper.record(HotSwapTarget.class.getClassLoader(), internalName(HotSwapTarget.class), original, original, classPath, null);
+		// the same name in another loader, which never finishes loading
+		try (URLClassLoader other = new URLClassLoader(new URL[0], null)) {
+			hotSwapper.record(other, internalName(HotSwapTarget.class), original, new byte[]{1}, classPath, null);
+
+			val applicator = new MixinApplicator();
+			applicator.addSource(HotSwapTargetMixin.class);
+			Assert.assertEquals(Collections.singletonList(HotSwapTarget.class), hotSwapper.swap(applicator));
+			Assert.assertEquals(1, redefinitions.size());
+			Assert.assertFalse(Arrays.equals(original, redefinitions.get(0).getDefinitionClassFile()));
+		}
+	}
+}
@@ -1,6 +1,8 @@
 package dev.minco.mixin.internal;
 
 public class MixinTarget {
+	public final StringBuilder calls = new StringBuilder();
+
 	@Override
 	public String toString() {
 		return "mixin not applied";
@@ -17,4 +19,42 @@ public class MixinTarget {
 		}
 		System.setProperty("boolMethodCallTarget", "false");
 	}
+
+	public void outOfLineInjectionTest() {
+		if (boolMethodCallTarget())
+			return;
+		System.setProperty("boolMethodCallTarget", "false");
+	}
+
+	public void matchCall(int i) {
+		calls.append(i);
+	}
+
+	public void matcherInjectionTest() {
+		matchCall(1);
+		matchCall(2);
+		matchCall(1);
+		matchCall(1);
+		matchCall(1);
+	}
+
+	public void constantMatcherInjectionTest() {
+		matchCall(1);
+		matchCall(2);
+		matchCall(1);
+		matchCall(1);
+		matchCall(1);
+	}
+
+	public void record(String value) {
+		calls.append(value);
+	}
+
+	public void orderInjectionTest() {
+		record("m");
+	}
+
+	public void overwriteOrderInjectionTest() {
+		record("m");
+	}
 }
@@ -0,0 +1,113 @@
+package dev.minco.mixin.internal;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import lombok.val;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import dev.minco.javatransformer.api.JavaTransformer;
+import dev.minco.mixin.internal.mixinsource.PackageReference;
+
+public class MixinWatcherTest {
+	private static final String TARGET_ENTRY = "dev/minco/mixin/internal/MixinTarget.class";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testOnlyChangedTargetsAreWritten() throws Exception {
+		val classes = JavaTransformer.pathFromClass(MixinTarget.class);
+		val output = folder.newFolder("output").toPath();
+		val logged = new ArrayList<String>();
+		val withMixins = new boolean[]{true};
+		val watcher = new MixinWatcher(() -> {
+			val applicator = new MixinApplicator();
+			if (withMixins[0])
+				applicator.addSource(PackageReference.class);
+			return applicator;
+		}, classes, output, logged::add);
+
+		Assert.assertEquals(1, watcher.runCycle());
+		val transformed = output.resolve(TARGET_ENTRY);
+		Assert.assertFalse("target should be transformed", Arrays.equals(Files.readAllBytes(classes.resolve(TARGET_ENTRY)), Files.readAllBytes(transformed)));
+
+		Assert.assertEquals("unchanged mixins should not be applied again", 0, watcher.runCycle());
+
+		withMixins[0] = false;
+		Assert.assertEquals(1, watcher.runCycle());
+		Assert.assertArrayEquals(Files.readAllBytes(classes.resolve(TARGET_ENTRY)), Files.readAllBytes(transformed));
+		Assert.assertEquals(3, logged.size());
+	}
+
+	@Test
+	public void testUnchangedSourcesAreNotParsedAgain() throws Exception {
+		val packageName = "dev.minco.mixin.internal.mixinsource";
+		val sources = folder.newFolder("sources").toPath();
+		val packageDirectory = Files.createDirectories(sources.resolve(packageName.replace('.', '/')));
+		try (Stream<Path> files = Files.list(Paths.get("src/test/java").resolve(packageName.replace('.', '/')))) {
+			for (Path file : files.collect(Collectors.toList()))
+				Files.copy(file, packageDirectory.resolve(file.getFileName()));
+		}
+
+		val logged = new ArrayList<String>();
+		val watcher = new MixinWatcher(() -> {
+			val applicator = new MixinApplicator();
+			applicator.setLog(logged::add);
+			applicator.addSource(sources, packageName);
+			return applicator;
+		}, JavaTransformer.pathFromClass(MixinTarget.class), folder.newFolder("output").toPath(), it -> {});
+
+		Assert.assertEquals(1, watcher.runCycle());
+		Assert.assertFalse(logged.stream().anyMatch(it -> it.startsWith("Reusing mixins")));
+		Assert.assertEquals(0, watcher.runCycle());
+		Assert.assertTrue("unchanged source should be reused", logged.stream().anyMatch(it -> it.startsWith("Reusing mixins")));
+
+		logged.clear();
+		Files.write(packageDirectory.resolve("MixinSource.java"), "\n// changed\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+		Assert.assertEquals("changed mixin should be applied again", 1, watcher.runCycle());
+		Assert.assertFalse(logged.stream().anyMatch(it -> it.startsWith("Reusing mixins")));
+	}
+
+	@Test
+	public void testOnlyEventsForWatchedJarsAreRelevant() throws Exception {
+		val jars = folder.newFolder("jars").toPath();
+		val jar = Files.createFile(jars.resolve("mixins.jar"));
+		try (MixinWatcher watcher = new MixinWatcher(MixinApplicator::new, JavaTransformer.pathFromClass(MixinTarget.class), folder.newFolder("output").toPath(), it -> {})) {
+			watcher.registerSources(Collections.singletonList(jar));
+			val directory = jar.toAbsolutePath().getParent();
+
+			Assert.assertTrue(watcher.isRelevant(directory, event(StandardWatchEventKinds.ENTRY_MODIFY, Paths.get("mixins.jar"))));
+			Assert.assertFalse(watcher.isRelevant(directory, event(StandardWatchEventKinds.ENTRY_MODIFY, Paths.get("other.jar"))));
+			Assert.assertTrue("overflow has no context, and must rerun the cycle", watcher.isRelevant(directory, event(StandardWatchEventKinds.OVERFLOW, null)));
+		}
+	}
+
+	private static <T> WatchEvent<T> event(WatchEvent.Kind<T> kind, T context) {
+		return new WatchEvent<T>() {
+			@Override
+			public Kind<T> kind() {
+				return kind;
+			}
+
+			@Override
+			public int count() {
+				return 1;
+			}
+
+			@Override
+			public T context() {
+				return context;
+			}
+		};
+	}
+}
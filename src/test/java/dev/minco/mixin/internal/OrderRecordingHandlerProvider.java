@@ -0,0 +1,57 @@
+package dev.minco.mixin.internal;
+
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import lombok.val;
+
+import dev.minco.javatransformer.api.ClassInfo;
+import dev.minco.javatransformer.api.JavaTransformer;
+import dev.minco.mixin.Mixin;
+import dev.minco.mixin.internal.mixinsource.MixinSource;
+import dev.minco.mixin.internal.mixinsource.PackageReference;
+
+/**
+ * Checks that provided handlers run in sort index order with the built in handlers.
+ * <p>
+ * Only registered in {@code handler-provider/META-INF/services}, which is not on the test class path, so {@link #run()} must be
+ * called on a copy of this class loaded with that directory on its class path.
+ */
+public class OrderRecordingHandlerProvider implements MixinHandlerProvider {
+	private static final List<String> events = new CopyOnWriteArrayList<>();
+
+	/**
+	 * Transforms {@link MixinTarget} with {@link MixinSource}
+	 *
+	 * @return the handlers which ran for {@link MixinSource}, in order
+	 */
+	public static List<String> run() throws Exception {
+		val applicator = new MixinApplicator();
+		applicator.addSource(PackageReference.class);
+		events.clear();
+		applicator.setLog(it -> {
+			if (it.startsWith("Handling class " + MixinSource.class.getName()))
+				events.add("log");
+		});
+		val classes = JavaTransformer.pathFromClass(MixinTarget.class);
+
+		val targetName = MixinTarget.class.getName().replace('.', '/');
+		if (applicator.transformClass(targetName, Files.readAllBytes(classes.resolve(targetName + ".class")), classes) == null)
+			throw new AssertionError(MixinTarget.class.getName() + " was not transformed");
+		return new ArrayList<>(events);
+	}
+
+	@Override
+	public void addHandlers(Registry registry) {
+		// runs after the logging handler, before @Overwrite at 0 and @Add at 2
+		registry.addHandler(ClassInfo.class, Mixin.class, -1, (applicator, annotation, member, target) -> record("early", member, target));
+		registry.addHandler(ClassInfo.class, Mixin.class, 3, (applicator, annotation, member, target) -> record("late", member, target));
+	}
+
+	private static void record(String handler, ClassInfo member, ClassInfo target) {
+		if (member.getName().equals(MixinSource.class.getName()))
+			events.add(handler + " addTest=" + target.getMethods().anyMatch(it -> it.getName().equals("addTest")));
+	}
+}
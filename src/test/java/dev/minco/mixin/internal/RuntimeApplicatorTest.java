@@ -1,5 +1,8 @@
 package dev.minco.mixin.internal;
 
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
 import lombok.SneakyThrows;
 import lombok.val;
 
@@ -32,4 +35,44 @@ public class RuntimeApplicatorTest {
 		new MixinTarget().voidInjectionTest();
 		Assert.assertEquals("true", System.getProperty("mixinInjection"));
 	}
+
+	@SneakyThrows
+	@Test
+	public void testOutOfLineInjectionCallsSyntheticHelper() throws Exception {
+		new MixinTarget().outOfLineInjectionTest();
+		Assert.assertEquals("mixin applied", System.getProperty("mixinOutOfLineInjection"));
+
+		Method helper = MixinTarget.class.getDeclaredMethod("recordOutOfLineInjection", MixinTarget.class);
+		Assert.assertTrue(Modifier.isStatic(helper.getModifiers()));
+		Assert.assertTrue(helper.isSynthetic());
+	}
+
+	@Test
+	public void testMatcherInjectsBeforeLastCallOfEachOverlappingMatch() {
+		val target = new MixinTarget();
+		target.matcherInjectionTest();
+		Assert.assertEquals("1x2x1x1x1", target.calls.toString());
+	}
+
+	@Test
+	public void testConstantMatcherOnlyMatchesEqualConstants() {
+		val target = new MixinTarget();
+		target.constantMatcherInjectionTest();
+		Assert.assertEquals("121x1x1", target.calls.toString());
+	}
+
+	@Test
+	public void testStackedInjectionsKeepDeclarationOrder() {
+		val target = new MixinTarget();
+		target.orderInjectionTest();
+		// injectables also call record, so this also checks that sites are only found in the original body
+		Assert.assertEquals("12m34", target.calls.toString());
+	}
+
+	@Test
+	public void testOverwriteIsAppliedAfterBeforeAndAfter() {
+		val target = new MixinTarget();
+		target.overwriteOrderInjectionTest();
+		Assert.assertEquals("1o3", target.calls.toString());
+	}
 }
@@ -0,0 +1,13 @@
+package dev.minco.mixin.internal.hotswapmixins;
+
+import dev.minco.mixin.*;
+import dev.minco.mixin.internal.HotSwapTarget;
+
+@Mixin
+public abstract class HotSwapTargetMixin extends HotSwapTarget {
+	@Override
+	@Overwrite
+	public String value() {
+		return "swapped";
+	}
+}
@@ -0,0 +1,31 @@
+package dev.minco.mixin.internal.invalidmixins.names;
+
+import dev.minco.mixin.*;
+import dev.minco.mixin.internal.MixinTarget;
+
+@Mixin
+public abstract class InvalidNamesMixin extends MixinTarget {
+	@Injectable(name = "first")
+	public void first1() {
+		record("1");
+	}
+
+	@Injectable(name = "first")
+	public void first2() {
+		record("2");
+	}
+
+	@Injectable(name = "second")
+	public void second1() {
+		record("3");
+	}
+
+	@Injectable(name = "second")
+	public void second2() {
+		record("4");
+	}
+
+	@Override
+	@Inject(injectable = "missing", type = Type.BODY)
+	public abstract void voidInjectionTest();
+}
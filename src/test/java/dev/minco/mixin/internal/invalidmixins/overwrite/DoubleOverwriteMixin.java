@@ -0,0 +1,22 @@
+package dev.minco.mixin.internal.invalidmixins.overwrite;
+
+import dev.minco.mixin.*;
+import dev.minco.mixin.internal.MixinTarget;
+
+@Mixin
+public abstract class DoubleOverwriteMixin extends MixinTarget {
+	@Injectable
+	public void overwriteA() {
+		record("a");
+	}
+
+	@Injectable
+	public void overwriteB() {
+		record("b");
+	}
+
+	@Override
+	@Inject(injectable = "overwriteA", type = Type.METHOD_CALL, value = "record", position = Position.OVERWRITE)
+	@Inject(injectable = "overwriteB", type = Type.METHOD_CALL, value = "record", position = Position.OVERWRITE)
+	public abstract void orderInjectionTest();
+}
@@ -0,0 +1,21 @@
+package dev.minco.mixin.internal.invalidmixins.unusedhelper;
+
+import dev.minco.mixin.*;
+import dev.minco.mixin.internal.MixinTarget;
+
+@Mixin
+public abstract class UnusedHelperMixin extends MixinTarget {
+	@Injectable(outOfLine = true)
+	public void unusedInjectable() {
+		recordUnusedInjection(this);
+	}
+
+	private static void recordUnusedInjection(MixinTarget target) {
+		System.setProperty("mixinUnusedInjection", String.valueOf(target));
+	}
+
+	// the target has one return statement, so nothing is injected
+	@Override
+	@Inject(injectable = "unusedInjectable", type = Type.RETURN, index = 5)
+	public abstract void outOfLineInjectionTest();
+}
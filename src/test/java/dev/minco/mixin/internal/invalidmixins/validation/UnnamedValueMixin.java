@@ -0,0 +1,17 @@
+package dev.minco.mixin.internal.invalidmixins.validation;
+
+import dev.minco.mixin.*;
+import dev.minco.mixin.internal.MixinTarget;
+
+@Mixin
+public abstract class UnnamedValueMixin extends MixinTarget {
+	@Injectable
+	public void recordReturn() {
+		record("r");
+	}
+
+	// return statements have no name to compare Inject.value with
+	@Override
+	@Inject(injectable = "recordReturn", type = Type.RETURN, value = "record")
+	public abstract void orderInjectionTest();
+}
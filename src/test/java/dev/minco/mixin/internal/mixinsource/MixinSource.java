@@ -25,4 +25,80 @@ public abstract class MixinSource extends MixinTarget {
 	@Inject(injectable = "voidInjectableTest", type = Type.BODY)
 	@Synchronize
 	public abstract void voidInjectionTest();
+
+	@Injectable(outOfLine = true)
+	public void outOfLineInjectableTest() {
+		recordOutOfLineInjection(this);
+	}
+
+	private static void recordOutOfLineInjection(MixinTarget target) {
+		System.setProperty("mixinOutOfLineInjection", String.valueOf(target));
+	}
+
+	@Override
+	@Inject(injectable = "outOfLineInjectableTest", type = Type.RETURN)
+	public abstract void outOfLineInjectionTest();
+
+	@Matcher
+	public void twoCalls() {
+		matchCall(0);
+		matchCall(0);
+	}
+
+	@Matcher(matchConstantInputs = true)
+	public void twoCallsOfOne() {
+		matchCall(1);
+		matchCall(1);
+	}
+
+	@Injectable
+	public void recordMatch() {
+		calls.append('x');
+	}
+
+	@Override
+	@Inject(injectable = "recordMatch", type = Type.METHOD_CALL, match = "twoCalls")
+	public abstract void matcherInjectionTest();
+
+	@Override
+	@Inject(injectable = "recordMatch", type = Type.METHOD_CALL, match = "twoCallsOfOne")
+	public abstract void constantMatcherInjectionTest();
+
+	@Injectable
+	public void recordBefore1() {
+		record("1");
+	}
+
+	@Injectable
+	public void recordBefore2() {
+		record("2");
+	}
+
+	@Injectable
+	public void recordAfter1() {
+		record("3");
+	}
+
+	@Injectable
+	public void recordAfter2() {
+		record("4");
+	}
+
+	@Injectable
+	public void recordOverwrite() {
+		record("o");
+	}
+
+	@Override
+	@Inject(injectable = "recordBefore1", type = Type.METHOD_CALL, value = "record")
+	@Inject(injectable = "recordAfter1", type = Type.METHOD_CALL, value = "record", position = Position.AFTER)
+	@Inject(injectable = "recordBefore2", type = Type.METHOD_CALL, value = "record")
+	@Inject(injectable = "recordAfter2", type = Type.METHOD_CALL, value = "record", position = Position.AFTER)
+	public abstract void orderInjectionTest();
+
+	@Override
+	@Inject(injectable = "recordOverwrite", type = Type.METHOD_CALL, value = "record", position = Position.OVERWRITE)
+	@Inject(injectable = "recordBefore1", type = Type.METHOD_CALL, value = "record")
+	@Inject(injectable = "recordAfter1", type = Type.METHOD_CALL, value = "record", position = Position.AFTER)
+	public abstract void overwriteOrderInjectionTest();
 }